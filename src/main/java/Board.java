@@ -4,13 +4,21 @@ import edu.princeton.cs.algs4.Stack;
 
 public class Board {
 
+    // Largest dimensions whose tiles fit in 4 bits and in one byte
+    private static final int PACKED_N = 4;
+    private static final int BYTE_N = 16;
+    private static final int MAX_N = 256;
+
     private final int n;
-    private final int[][] tiles;
-    private final int[][] twin;
-    private final int hamming;
-    private final int manhattan;
-    private int blankRow;
-    private int blankCol;
+
+    // Tile of site i (row-major) in bits 4i..4i+3 when n <= PACKED_N, otherwise in
+    // cells, one byte per tile up to BYTE_N and two big-endian bytes beyond
+    private final long packed;
+    private final byte[] cells;
+
+    private int blank;
+    private int hamming;
+    private int manhattan;
 
     /**
      * Construct a board from an n-by-n array of blocks (where blocks[i][j] = block in row i, column j).
@@ -19,59 +27,114 @@ public class Board {
         if (blocks == null) throw new IllegalArgumentException();
 
         n = blocks.length;
+        if (n > MAX_N) throw new IllegalArgumentException();
 
-        int hammingCount = 0;
-        int manhattanCount = 0;
-
-        // Defensive copy
-        tiles = new int[n][n];
-        twin = new int[n][n];
+        // Defensive copy into the packed encoding
+        long bits = 0;
+        cells = n <= PACKED_N ? null : new byte[n <= BYTE_N ? n * n : 2 * n * n];
         for (int row = 0; row < n; row++) {
             if (blocks[row] == null) throw new IllegalArgumentException();
             if (blocks[row].length != n) throw new IllegalArgumentException();
             for (int col = 0; col < n; col++) {
                 final int tile = blocks[row][col];
+                if (tile < 0 || tile >= n * n) throw new IllegalArgumentException();
 
-                // Assignment
-                tiles[row][col] = tile;
-                twin[row][col] = tile;
+                final int site = row * n + col;
+                if (cells == null) bits |= (long) tile << (site << 2);
+                else setTile(cells, n, site, tile);
+            }
+        }
+        packed = bits;
 
-                // Skip blank square but note location
-                if (tile == 0) {
-                    blankRow = row;
-                    blankCol = col;
-                    continue;
-                }
+        measure();
+    }
 
-                // Calculate goal for this [row, col]
-                final int goal = row * n + col + 1;
+    /**
+     * The board reached from {@code board} by exchanging the tiles at sites a and b.
+     * When one of them is the blank this is a move, and only the tile that slides
+     * changes its distances, so they are updated from the parent in constant time.
+     */
+    private Board(final Board board, final int a, final int b) {
+        n = board.n;
+        if (board.cells == null) {
+            final long diff = ((board.packed >>> (a << 2)) ^ (board.packed >>> (b << 2))) & 0xF;
+            packed = board.packed ^ (diff << (a << 2)) ^ (diff << (b << 2));
+            cells = null;
+        } else {
+            packed = 0;
+            cells = board.cells.clone();
+            final int tile = tileAt(a);
+            setTile(cells, n, a, tileAt(b));
+            setTile(cells, n, b, tile);
+        }
 
-                // Compute hamming distance
-                if (tile != goal) hammingCount++;
+        if (a == board.blank || b == board.blank) {
+            final int from = a == board.blank ? b : a;
+            final int to = board.blank;
+            final int tile = tileAt(to);
+            blank = from;
+            hamming = board.hamming - (tile != from + 1 ? 1 : 0) + (tile != to + 1 ? 1 : 0);
+            manhattan = board.manhattan - distance(tile, from) + distance(tile, to);
+        } else {
+            measure();
+        }
+    }
 
-                // Compute manhattan distance
-                final int correctRow = (tile - 1) / n;
-                final int correctCol = (tile - 1) % n;
-                manhattanCount += Math.abs(correctRow - row);
-                manhattanCount += Math.abs(correctCol - col);
+    /**
+     * Locate the blank and compute the hamming and manhattan distances.
+     */
+    private void measure() {
+        hamming = 0;
+        manhattan = 0;
+        for (int site = 0; site < n * n; site++) {
+            final int tile = tileAt(site);
+
+            // Skip blank square but note location
+            if (tile == 0) {
+                blank = site;
+                continue;
             }
+
+            // Goal for this site is site + 1
+            if (tile != site + 1) hamming++;
+
+            manhattan += distance(tile, site);
         }
+    }
+
+    /**
+     * Manhattan distance of a non-blank tile at the given site from its goal.
+     */
+    private int distance(final int tile, final int site) {
+        return Math.abs((tile - 1) / n - site / n) + Math.abs((tile - 1) % n - site % n);
+    }
+
+    /**
+     * @return the tile at the 0-indexed row-major site, 0 for the blank.
+     */
+    int tileAt(final int site) {
+        if (cells == null) return (int) (packed >>> (site << 2)) & 0xF;
+        if (n <= BYTE_N) return cells[site] & 0xFF;
+        return (cells[2 * site] & 0xFF) << 8 | cells[2 * site + 1] & 0xFF;
+    }
 
-        // Assemble twin by attempting to exchange first two, otherwise exchange last two
-        if (twin[0][0] != 0 && twin[0][1] != 0) {
-            final int temp = twin[0][0];
-            twin[0][0] = twin[0][1];
-            twin[0][1] = temp;
+    private static void setTile(final byte[] cells, final int n, final int site, final int tile) {
+        if (n <= BYTE_N) {
+            cells[site] = (byte) tile;
         } else {
-            final int temp = twin[n - 1][n - 1];
-            twin[n - 1][n - 1] = twin[n - 1][n - 2];
-            twin[n - 1][n - 2] = temp;
+            cells[2 * site] = (byte) (tile >>> 8);
+            cells[2 * site + 1] = (byte) tile;
         }
+    }
 
-        hamming = hammingCount;
-        manhattan = manhattanCount;
+    /**
+     * @return the board reached by sliding the tile at the given site, which must
+     *         be next to the blank, into the blank.
+     */
+    Board slide(final int site) {
+        return new Board(this, blank, site);
     }
-    
+
     public int dimension() {
         return n;
     }
@@ -87,9 +150,13 @@ public class Board {
     public boolean isGoal() {
         return hamming() == 0;
     }
-    
+
+    /**
+     * Exchange the first two tiles, otherwise the last two if the blank is among the first.
+     */
     public Board twin() {
-        return new Board(twin);
+        if (tileAt(0) != 0 && tileAt(1) != 0) return new Board(this, 0, 1);
+        return new Board(this, n * n - 1, n * n - 2);
     }
 
     public boolean equals(Object other) {
@@ -99,46 +166,49 @@ public class Board {
 
         final Board that = (Board) other;
         if (that.n != this.n) return false;
-        if (that.hamming != this.hamming) return false;
-        if (that.manhattan != this.manhattan) return false;
+        if (that.packed != this.packed) return false;
 
-        return Arrays.deepEquals(this.tiles, that.tiles);
+        return Arrays.equals(this.cells, that.cells);
     }
 
-    private static int[][] copyOf(int[][] array) {
-        int[][] copy = new int[array.length][];
-        for (int row = 0; row < array.length; row++) {
-            copy[row] = new int[array[row].length];
-            for (int col = 0; col < array[row].length; col++) {
-                copy[row][col] = array[row][col];
-            }
+    public int hashCode() {
+        return Long.hashCode(key());
+    }
+
+    /**
+     * @return the packed tiles up to 4-by-4, where equal keys mean equal boards,
+     *         otherwise a 64-bit hash of the tiles.
+     */
+    long key() {
+        if (cells == null) return packed;
+
+        long hash = n;
+        for (final byte cell : cells) {
+            hash = (hash ^ (cell & 0xFF)) * 0x100000001B3L;
         }
-        return copy;
+        return hash;
     }
 
-    private static int[][] swap(int[][] array, int rowA, int colA, int rowB, int colB) {
-        int[][] copy = copyOf(array);
-        int temp = copy[rowA][colA];
-        copy[rowA][colA] = copy[rowB][colB];
-        copy[rowB][colB] = temp;
-        return copy;
+    /**
+     * @return {@code true} if {@link #key()} identifies this board among boards of its size.
+     */
+    boolean hasExactKey() {
+        return cells == null;
     }
 
     /**
      * Any board may have 2, 3, or 4 neighbors.
      */
     public Iterable<Board> neighbors() {
-        final boolean onLeft   = blankCol == 0;
-        final boolean onTop    = blankRow == 0;
-        final boolean onRight  = blankCol == n - 1;
-        final boolean onBottom = blankRow == n - 1;
+        final int blankRow = blank / n;
+        final int blankCol = blank % n;
 
         final Stack<Board> neighbors = new Stack<>();
 
-        if (!onLeft) neighbors.push(new Board(swap(this.tiles, blankRow, blankCol, blankRow, blankCol - 1)));
-        if (!onTop) neighbors.push(new Board(swap(this.tiles, blankRow, blankCol, blankRow - 1, blankCol)));
-        if (!onRight) neighbors.push(new Board(swap(this.tiles, blankRow, blankCol, blankRow, blankCol + 1)));
-        if (!onBottom) neighbors.push(new Board(swap(this.tiles, blankRow, blankCol, blankRow + 1, blankCol)));
+        if (blankCol != 0) neighbors.push(new Board(this, blank, blank - 1));
+        if (blankRow != 0) neighbors.push(new Board(this, blank, blank - n));
+        if (blankCol != n - 1) neighbors.push(new Board(this, blank, blank + 1));
+        if (blankRow != n - 1) neighbors.push(new Board(this, blank, blank + n));
 
         return neighbors;
     }
@@ -148,7 +218,7 @@ public class Board {
         s.append(n + "\n");
         for (int i = 0; i < n; i++) {
             for (int j = 0; j < n; j++) {
-                s.append(String.format("%2d ", tiles[i][j]));
+                s.append(String.format("%2d ", tileAt(i * n + j)));
             }
             s.append("\n");
         }
@@ -0,0 +1,187 @@
+import edu.princeton.cs.algs4.StdIn;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ *  The {@code CompactUF} class is a <em>union–find data type</em> with the same
+ *  API as {@link UF}, plus constant time queries for the size and the largest
+ *  site of a component, and a primitive enumeration of all components.
+ *  <p>
+ *  This implementation uses weighted quick union by size with path compression
+ *  by halving. The size of each component is stored as a negative value in the
+ *  parent slot of its root, so there is no separate rank array; the only other
+ *  array holds the largest site of each root. Both aggregates are updated on
+ *  <em>union</em>.
+ */
+public class CompactUF {
+
+    private final int[] parent;  // parent[i] = parent of i, or -size if i is a root
+    private final int[] largest; // largest[i] = largest site in the component rooted at i
+    private int count;           // number of components
+    private int largestSize;     // size of the largest component
+
+    /**
+     * Initializes an empty union–find data structure with {@code n} sites
+     * {@code 0} through {@code n-1}. Each site is initially in its own
+     * component.
+     *
+     * @param  n the number of sites
+     * @throws IllegalArgumentException if {@code n < 0}
+     */
+    public CompactUF(int n) {
+        if (n < 0) throw new IllegalArgumentException();
+        count = n;
+        largestSize = n > 0 ? 1 : 0;
+        parent = new int[n];
+        largest = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = -1;
+            largest[i] = i;
+        }
+    }
+
+    /**
+     * Returns the component identifier for the component containing site {@code p}.
+     *
+     * @param  p the integer representing one site
+     * @return the component identifier for the component containing site {@code p}
+     * @throws IllegalArgumentException unless {@code 0 <= p < n}
+     */
+    public int find(int p) {
+        validate(p);
+        int site = p;
+        while (parent[site] >= 0) {
+            final int up = parent[site];
+            if (parent[up] >= 0) parent[site] = parent[up];    // path compression by halving
+            site = up;
+        }
+        return site;
+    }
+
+    /**
+     * Returns the largest site in the component containing site {@code p}.
+     *
+     * @throws IllegalArgumentException unless {@code 0 <= p < n}
+     */
+    public int findCanonical(int p) {
+        return largest[find(p)];
+    }
+
+    /**
+     * Returns the number of sites in the component containing site {@code p}.
+     *
+     * @throws IllegalArgumentException unless {@code 0 <= p < n}
+     */
+    public int size(int p) {
+        return -parent[find(p)];
+    }
+
+    /**
+     * Returns the number of sites in the largest component.
+     */
+    public int largestSize() {
+        return largestSize;
+    }
+
+    /**
+     * Returns the number of components.
+     *
+     * @return the number of components (between {@code 1} and {@code n})
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns true if the the two sites are in the same component.
+     *
+     * @throws IllegalArgumentException unless
+     *         both {@code 0 <= p < n} and {@code 0 <= q < n}
+     */
+    public boolean connected(int p, int q) {
+        return find(p) == find(q);
+    }
+
+    /**
+     * Merges the component containing site {@code p} with the
+     * the component containing site {@code q}.
+     *
+     * @throws IllegalArgumentException unless
+     *         both {@code 0 <= p < n} and {@code 0 <= q < n}
+     */
+    public void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return;
+
+        // make smaller root point to larger one; sizes are negative
+        if (parent[rootP] > parent[rootQ]) {
+            final int root = rootP;
+            rootP = rootQ;
+            rootQ = root;
+        }
+        parent[rootP] += parent[rootQ];
+        parent[rootQ] = rootP;
+        largest[rootP] = Math.max(largest[rootP], largest[rootQ]);
+        largestSize = Math.max(largestSize, -parent[rootP]);
+        count--;
+    }
+
+    /**
+     * Lists every component by its largest site and its size, in increasing order
+     * of component identifier.
+     *
+     * @param  canonical receives the largest site of each component
+     * @param  sizes receives the size of each component
+     * @return the number of components written
+     * @throws IllegalArgumentException if either array is shorter than {@link #count()}
+     */
+    public int components(int[] canonical, int[] sizes) {
+        if (canonical.length < count || sizes.length < count) throw new IllegalArgumentException();
+        int written = 0;
+        for (int i = 0; i < parent.length; i++) {
+            if (parent[i] >= 0) continue;
+            canonical[written] = largest[i];
+            sizes[written] = -parent[i];
+            written++;
+        }
+        return written;
+    }
+
+    // validate that p is a valid index
+    private void validate(int p) {
+        int n = parent.length;
+        if (p < 0 || p >= n) {
+            throw new IllegalArgumentException("index " + p + " is not between 0 and " + (n-1));
+        }
+    }
+
+    /**
+     * Reads in a an integer {@code n} and a sequence of pairs of integers
+     * (between {@code 0} and {@code n-1}) from standard input, where each integer
+     * in the pair represents some site;
+     * if the sites are in different components, merge the two components
+     * and print the pair to standard output. Then print every component.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int n = StdIn.readInt();
+        CompactUF uf = new CompactUF(n);
+        while (!StdIn.isEmpty()) {
+            int p = StdIn.readInt();
+            int q = StdIn.readInt();
+            if (uf.connected(p, q)) continue;
+            uf.union(p, q);
+            StdOut.println(p + " " + q);
+        }
+        StdOut.println(uf.count() + " components");
+
+        int[] canonical = new int[uf.count()];
+        int[] sizes = new int[uf.count()];
+        int components = uf.components(canonical, sizes);
+        for (int i = 0; i < components; i++) {
+            StdOut.printf("%d is largest of %d nodes.%n", canonical[i], sizes[i]);
+        }
+    }
+
+}
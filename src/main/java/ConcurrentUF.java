@@ -0,0 +1,174 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+import edu.princeton.cs.algs4.StdIn;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ *  The {@code ConcurrentUF} class is a <em>union–find data type</em> with the same
+ *  API as {@link UF}, except that any number of threads may call <em>union</em>,
+ *  <em>find</em>, <em>connected</em> and <em>count</em> at the same time.
+ *  <p>
+ *  This implementation is lock free. Parents live in an {@link AtomicIntegerArray}
+ *  and every write is a compare-and-set, so a thread that loses a race simply
+ *  retries from the new roots. Roots are linked by randomized priority, a fixed
+ *  pseudo-random permutation of the site indexes, which keeps trees shallow in
+ *  expectation without a rank array to keep consistent. Paths are compressed by
+ *  halving, also with compare-and-set.
+ *  <p>
+ *  A <em>connected</em> result that is {@code false} may be outdated by the time it
+ *  returns if another thread is still calling <em>union</em>.
+ */
+public class ConcurrentUF {
+
+    private final AtomicIntegerArray parent;  // parent.get(i) = parent of i
+    private final AtomicInteger count;        // number of components
+
+    /**
+     * Initializes an empty union–find data structure with {@code n} sites
+     * {@code 0} through {@code n-1}. Each site is initially in its own
+     * component.
+     *
+     * @param  n the number of sites
+     * @throws IllegalArgumentException if {@code n < 0}
+     */
+    public ConcurrentUF(int n) {
+        if (n < 0) throw new IllegalArgumentException();
+        count = new AtomicInteger(n);
+        parent = new AtomicIntegerArray(n);
+        for (int i = 0; i < n; i++) {
+            parent.set(i, i);
+        }
+    }
+
+    /**
+     * Returns the component identifier for the component containing site {@code p}.
+     *
+     * @param  p the integer representing one site
+     * @return the component identifier for the component containing site {@code p}
+     * @throws IllegalArgumentException unless {@code 0 <= p < n}
+     */
+    public int find(int p) {
+        validate(p);
+        int site = p;
+        while (true) {
+            final int up = parent.get(site);
+            if (up == site) return site;
+            final int grandparent = parent.get(up);
+            if (grandparent != up) parent.compareAndSet(site, up, grandparent);    // path compression by halving
+            site = grandparent;
+        }
+    }
+
+    /**
+     * Returns the number of components.
+     *
+     * @return the number of components (between {@code 1} and {@code n})
+     */
+    public int count() {
+        return count.get();
+    }
+
+    /**
+     * Returns true if the the two sites are in the same component.
+     *
+     * @param  p the integer representing one site
+     * @param  q the integer representing the other site
+     * @return {@code true} if the two sites {@code p} and {@code q} are in the same component;
+     *         {@code false} otherwise
+     * @throws IllegalArgumentException unless
+     *         both {@code 0 <= p < n} and {@code 0 <= q < n}
+     */
+    public boolean connected(int p, int q) {
+        while (true) {
+            final int rootP = find(p);
+            final int rootQ = find(q);
+            if (rootP == rootQ) return true;
+            // Only trust a negative answer if rootP was still a root after finding rootQ
+            if (parent.get(rootP) == rootP) return false;
+        }
+    }
+
+    /**
+     * Merges the component containing site {@code p} with the
+     * the component containing site {@code q}.
+     *
+     * @param  p the integer representing one site
+     * @param  q the integer representing the other site
+     * @throws IllegalArgumentException unless
+     *         both {@code 0 <= p < n} and {@code 0 <= q < n}
+     */
+    public void union(int p, int q) {
+        while (true) {
+            final int rootP = find(p);
+            final int rootQ = find(q);
+            if (rootP == rootQ) return;
+
+            // make root of lower priority point to root of higher priority
+            final boolean linked = priority(rootP) < priority(rootQ)
+                    ? parent.compareAndSet(rootP, rootP, rootQ)
+                    : parent.compareAndSet(rootQ, rootQ, rootP);
+            if (linked) {
+                count.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Computes the connected components of the graph on sites {@code 0} through
+     * {@code n-1} with edges {@code p[i]-q[i]}, using all cores of the common pool.
+     * Edges are hooked concurrently, then every site's root is found concurrently.
+     *
+     * @return {@code labels} where {@code labels[i]} is the component identifier of
+     *         site {@code i}; component identifiers are their own labels
+     * @throws IllegalArgumentException if {@code p} and {@code q} differ in length
+     *         or hold a site outside {@code 0 <= site < n}
+     */
+    public static int[] components(int n, int[] p, int[] q) {
+        if (p == null || q == null || p.length != q.length) throw new IllegalArgumentException();
+        ConcurrentUF uf = new ConcurrentUF(n);
+        IntStream.range(0, p.length).parallel().forEach(i -> uf.union(p[i], q[i]));
+
+        // No unions remain, so one find per site leaves every label pointing at its root
+        int[] labels = new int[n];
+        IntStream.range(0, n).parallel().forEach(i -> labels[i] = uf.find(i));
+        return labels;
+    }
+
+    // fixed random priority; the finalizer of MurmurHash3 is a bijection, so no ties
+    private static int priority(int p) {
+        int h = p;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    // validate that p is a valid index
+    private void validate(int p) {
+        int n = parent.length();
+        if (p < 0 || p >= n) {
+            throw new IllegalArgumentException("index " + p + " is not between 0 and " + (n-1));
+        }
+    }
+
+    /**
+     * Reads in a an integer {@code n} and a sequence of pairs of integers
+     * (between {@code 0} and {@code n-1}) from standard input, unions every
+     * pair in parallel and prints the number of components.
+     *
+     * @param args the command-line arguments
+     */
+    public static void main(String[] args) {
+        int[] input = StdIn.readAllInts();
+        ConcurrentUF uf = new ConcurrentUF(input[0]);
+        IntStream.range(0, (input.length - 1) / 2).parallel()
+                .forEach(i -> uf.union(input[2 * i + 1], input[2 * i + 2]));
+        StdOut.println(uf.count() + " components");
+    }
+
+}
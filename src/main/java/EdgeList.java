@@ -0,0 +1,196 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * A union–find input held as primitive arrays: a number of sites {@code n} and the
+ * pairs {@code p[i]}, {@code q[i]} to connect.
+ * <p>
+ * Text files in the {@link UF} format are memory mapped and parsed straight from the
+ * mapped bytes, without Strings or a Scanner. The binary format skips parsing
+ * altogether: little-endian ints, {@code n}, then the number of pairs {@code m}, then
+ * {@code m} pairs.
+ */
+public class EdgeList {
+
+    // Map files in pieces of at most 1 GiB
+    private static final long CHUNK = 1L << 30;
+
+    private final int n;
+    private final int[] p;
+    private final int[] q;
+
+    /**
+     * @throws IllegalArgumentException if {@code n < 0} or the arrays differ in length
+     */
+    public EdgeList(int n, int[] p, int[] q) {
+        if (n < 0 || p == null || q == null || p.length != q.length) throw new IllegalArgumentException();
+        this.n = n;
+        this.p = p;
+        this.q = q;
+    }
+
+    public int n() {
+        return n;
+    }
+
+    public int[] p() {
+        return p;
+    }
+
+    public int[] q() {
+        return q;
+    }
+
+    /**
+     * Read a text file, or a binary one if its name ends with {@code .bin}.
+     */
+    public static EdgeList read(Path path) throws IOException {
+        return path.toString().endsWith(".bin") ? readBinary(path) : readText(path);
+    }
+
+    /**
+     * Read a text file holding {@code n} followed by whitespace separated pairs.
+     */
+    public static EdgeList readText(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            TextParser parser = new TextParser();
+            long size = channel.size();
+            for (long position = 0; position < size; position += CHUNK) {
+                // A number cut by the chunk boundary carries over in the parser state
+                parser.parse(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK, size - position)));
+            }
+            return parser.finish();
+        }
+    }
+
+    /**
+     * Read a binary file written by {@link #writeBinary}.
+     */
+    public static EdgeList readBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 2 * Integer.BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            int n = header.getInt();
+            int m = header.getInt();
+            if (channel.size() != 2L * Integer.BYTES * (m + 1L)) throw new IOException("truncated edge file " + path);
+
+            int[] p = new int[m];
+            int[] q = new int[m];
+            int edge = 0;
+            for (long position = 2 * Integer.BYTES; edge < m; ) {
+                long length = Math.min(CHUNK, 2L * Integer.BYTES * (m - edge));
+                IntBuffer ints = channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asIntBuffer();
+                while (ints.hasRemaining()) {
+                    p[edge] = ints.get();
+                    q[edge] = ints.get();
+                    edge++;
+                }
+                position += length;
+            }
+            return new EdgeList(n, p, q);
+        }
+    }
+
+    /**
+     * Write this edge list in the binary format.
+     */
+    public void writeBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(n).putInt(p.length);
+            for (int i = 0; i < p.length; i++) {
+                if (buffer.remaining() < 2 * Integer.BYTES) drain(channel, buffer);
+                buffer.putInt(p[i]).putInt(q[i]);
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Parses decimal ints from raw bytes, any non-digit byte ends a number.
+     */
+    private static final class TextParser {
+
+        private int n = -1;
+        private int[] p = new int[16];
+        private int[] q = new int[16];
+        private int m;
+        private boolean second;
+
+        private boolean inNumber;
+        private boolean negative;
+        private int value;
+
+        void parse(ByteBuffer bytes) {
+            final int limit = bytes.limit();
+            for (int i = 0; i < limit; i++) {
+                final byte b = bytes.get(i);
+                if (b >= '0' && b <= '9') {
+                    value = value * 10 + (b - '0');
+                    inNumber = true;
+                } else {
+                    if (inNumber) accept(negative ? -value : value);
+                    negative = b == '-';
+                }
+            }
+        }
+
+        private void accept(int number) {
+            inNumber = false;
+            negative = false;
+            value = 0;
+
+            if (n < 0) {
+                n = number;
+            } else if (!second) {
+                if (m == p.length) {
+                    p = Arrays.copyOf(p, 2 * m);
+                    q = Arrays.copyOf(q, 2 * m);
+                }
+                p[m] = number;
+                second = true;
+            } else {
+                q[m++] = number;
+                second = false;
+            }
+        }
+
+        EdgeList finish() {
+            if (inNumber) accept(negative ? -value : value);
+            if (n < 0 || second) throw new IllegalArgumentException("expected n followed by pairs");
+            return new EdgeList(n, Arrays.copyOf(p, m), Arrays.copyOf(q, m));
+        }
+    }
+
+    /**
+     * Converts a text edge file to the binary format.
+     * Usage: {@code EdgeList input.txt output.bin}
+     */
+    public static void main(String[] args) throws IOException {
+        EdgeList edges = readText(Paths.get(args[0]));
+        edges.writeBinary(Paths.get(args[1]));
+        StdOut.printf("%d sites, %d pairs%n", edges.n(), edges.p().length);
+    }
+
+}
@@ -0,0 +1,228 @@
+import java.util.SplittableRandom;
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Checks whether a grid of open and blocked sites percolates by streaming it one row
+ * at a time (Hoshen–Kopelman), using memory proportional to the row width only.
+ * <p>
+ * Only the labels of the most recent row are kept, along with a small union–find
+ * over those labels and the labels of the row being read. Clusters that do not reach
+ * the new row are finished and counted, then their labels are recycled.
+ */
+public class HoshenKopelman {
+
+    private final int n;
+    private int rows;
+
+    // Labels of the most recent row, -1 for blocked sites
+    private int[] front;
+    private int frontLabels;
+    private boolean[] frontTop;
+    private long[] frontSize;
+
+    // Scratch space for the row being read: labels 0..n-1 are the front, n.. are new
+    private int[] row;
+    private boolean[] rowTop;
+    private long[] rowSize;
+    private final int[] parent;
+    private final boolean[] top;
+    private final long[] size;
+    private final int[] remap;
+
+    private long finishedClusters;
+    private long largestCluster;
+
+    /**
+     * Prepare to read rows of n sites each.
+     *
+     * @throws IllegalArgumentException if {@code n <= 0}
+     */
+    public HoshenKopelman(int n) {
+        if (n <= 0) throw new IllegalArgumentException();
+        this.n = n;
+        front = new int[n];
+        frontTop = new boolean[n];
+        frontSize = new long[n];
+        row = new int[n];
+        rowTop = new boolean[n];
+        rowSize = new long[n];
+        parent = new int[2 * n];
+        top = new boolean[2 * n];
+        size = new long[2 * n];
+        remap = new int[2 * n];
+    }
+
+    /**
+     * Read the next row, where {@code sites[col]} is {@code true} for open sites.
+     */
+    public void addRow(boolean[] sites) {
+        if (sites == null || sites.length != n) throw new IllegalArgumentException();
+        final boolean first = rows == 0;
+
+        for (int i = 0; i < frontLabels; i++) {
+            parent[i] = i;
+            top[i] = frontTop[i];
+            size[i] = frontSize[i];
+        }
+
+        // Label each open site from its left and upper neighbours
+        int next = n;
+        for (int col = 0; col < n; col++) {
+            if (!sites[col]) {
+                row[col] = -1;
+                continue;
+            }
+            final int up = first ? -1 : front[col];
+            final int left = col == 0 ? -1 : row[col - 1];
+
+            if (up < 0 && left < 0) {
+                parent[next] = next;
+                top[next] = first;
+                size[next] = 0;
+                row[col] = next++;
+            } else if (left < 0) {
+                row[col] = up;
+            } else {
+                row[col] = left;
+                if (up >= 0) union(left, up);
+            }
+            size[find(row[col])]++;
+        }
+
+        // Renumber the clusters reaching this row 0..k-1 so labels stay below n
+        for (int i = 0; i < next; i++) {
+            remap[i] = -1;
+        }
+        int labels = 0;
+        for (int col = 0; col < n; col++) {
+            if (row[col] < 0) continue;
+            final int root = find(row[col]);
+            if (remap[root] < 0) {
+                remap[root] = labels;
+                rowTop[labels] = top[root];
+                rowSize[labels] = size[root];
+                labels++;
+            }
+            row[col] = remap[root];
+        }
+
+        // Clusters of the previous row that did not reach this one are finished
+        for (int i = 0; i < frontLabels; i++) {
+            final int root = find(i);
+            if (remap[root] == -1) {
+                remap[root] = -2;
+                finishedClusters++;
+                largestCluster = Math.max(largestCluster, size[root]);
+            }
+        }
+
+        int[] labelsSwap = front;
+        front = row;
+        row = labelsSwap;
+        boolean[] topSwap = frontTop;
+        frontTop = rowTop;
+        rowTop = topSwap;
+        long[] sizeSwap = frontSize;
+        frontSize = rowSize;
+        rowSize = sizeSwap;
+        frontLabels = labels;
+        rows++;
+    }
+
+    /**
+     * Does a cluster connect the first row to the last row read?
+     */
+    public boolean percolates() {
+        for (int i = 0; i < frontLabels; i++) {
+            if (frontTop[i]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return number of clusters in the rows read so far.
+     */
+    public long numberOfClusters() {
+        return finishedClusters + frontLabels;
+    }
+
+    /**
+     * @return number of sites in the largest cluster of the rows read so far.
+     */
+    public long largestCluster() {
+        long largest = largestCluster;
+        for (int i = 0; i < frontLabels; i++) {
+            largest = Math.max(largest, frontSize[i]);
+        }
+        return largest;
+    }
+
+    /**
+     * @return number of rows read.
+     */
+    public int rows() {
+        return rows;
+    }
+
+    private int find(int p) {
+        int q = p;
+        while (q != parent[q]) {
+            parent[q] = parent[parent[q]];    // path compression by halving
+            q = parent[q];
+        }
+        return q;
+    }
+
+    private void union(int p, int q) {
+        final int rootP = find(p);
+        final int rootQ = find(q);
+        if (rootP == rootQ) return;
+
+        parent[rootQ] = rootP;
+        top[rootP] |= top[rootQ];
+        size[rootP] += size[rootQ];
+    }
+
+    /**
+     * Usage: {@code HoshenKopelman grid.txt} for a file holding n and then n lines of
+     * n characters, {@code 1} for open; or {@code HoshenKopelman n p seed} to generate
+     * n rows with each site open with probability p.
+     */
+    public static void main(String[] args) {
+        HoshenKopelman grid;
+        if (args.length == 1) {
+            In in = new In(args[0]);
+            int n = Integer.parseInt(in.readLine().trim());
+            grid = new HoshenKopelman(n);
+            boolean[] sites = new boolean[n];
+            while (in.hasNextLine()) {
+                String line = in.readLine().trim();
+                if (line.isEmpty()) continue;
+                for (int col = 0; col < n; col++) {
+                    sites[col] = line.charAt(col) == '1';
+                }
+                grid.addRow(sites);
+            }
+        } else {
+            int n = Integer.parseInt(args[0]);
+            double p = Double.parseDouble(args[1]);
+            SplittableRandom random = new SplittableRandom(Long.parseLong(args[2]));
+            grid = new HoshenKopelman(n);
+            boolean[] sites = new boolean[n];
+            for (int row = 0; row < n; row++) {
+                for (int col = 0; col < n; col++) {
+                    sites[col] = random.nextDouble() < p;
+                }
+                grid.addRow(sites);
+            }
+        }
+
+        StdOut.printf("%-16s= %d%n", "rows", grid.rows());
+        StdOut.printf("%-16s= %d%n", "clusters", grid.numberOfClusters());
+        StdOut.printf("%-16s= %d%n", "largest cluster", grid.largestCluster());
+        StdOut.printf("%-16s= %b%n", "percolates", grid.percolates());
+    }
+
+}
@@ -0,0 +1,236 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.Queue;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Solve the puzzle by iterative-deepening A*: repeated depth-first searches bounded
+ * by moves plus manhattan distance, raising the bound to the smallest value that
+ * exceeded it until the goal is reached. The same optimal {@link #moves()} as
+ * {@link Solver} in memory linear in the solution length.
+ * <p>
+ * The search works on a single array of tiles, moving the blank and undoing the
+ * move in place, and keeps the manhattan distance up to date from the one tile that
+ * slides. Solvability is decided from the permutation parity instead of a twin search.
+ * <p>
+ * Given a {@link PatternDatabase}, the bound uses manhattan distance raised by the
+ * excess the database records for each pattern, updated only for the pattern of the
+ * tile that slides.
+ */
+public class IDASolver {
+
+    private static final int FOUND = -1;
+
+    private final Board initial;
+    private final int n;
+    private final int[] tiles;
+    private final int[] rowOf;
+    private final int[] colOf;
+    private final boolean solvable;
+    private final PatternDatabase database;
+    private final int[] siteOf;
+    private final int[] excess;
+
+    // Sites the blank moved to, path[0..moves)
+    private int[] path;
+    private int blank;
+    private int distance;
+    // Twice the sum of excess, added to distance for the bound
+    private int extra;
+    private int moves = -1;
+
+    public IDASolver(Board initial) {
+        this(initial, null);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the database is for another board size
+     */
+    public IDASolver(Board initial, PatternDatabase database) {
+        if (initial == null) throw new IllegalArgumentException();
+
+        this.initial = initial;
+        this.database = database;
+        n = initial.dimension();
+        if (database != null && database.dimension() != n) throw new IllegalArgumentException();
+
+        tiles = new int[n * n];
+        rowOf = new int[n * n];
+        colOf = new int[n * n];
+        siteOf = new int[n * n];
+        for (int site = 0; site < n * n; site++) {
+            tiles[site] = initial.tileAt(site);
+            rowOf[site] = site / n;
+            colOf[site] = site % n;
+            siteOf[tiles[site]] = site;
+            if (tiles[site] == 0) blank = site;
+        }
+        distance = initial.manhattan();
+
+        excess = new int[database == null ? 0 : database.numberOfPatterns()];
+        for (int pattern = 0; pattern < excess.length; pattern++) {
+            excess[pattern] = database.excess(pattern, siteOf);
+            extra += 2 * excess[pattern];
+        }
+
+        solvable = isSolvable(tiles, n, blank);
+        if (!solvable) return;
+
+        int bound = distance + extra;
+        while (true) {
+            path = new int[bound];
+            final int next = search(0, bound, -1);
+            if (next == FOUND) break;
+            bound = next;
+        }
+    }
+
+    /**
+     * Each move swaps the blank with one tile. Sideways moves keep the order of the
+     * other tiles, and vertical moves shift one tile past n - 1 others. So for odd n
+     * the parity of the tiles' permutation is invariant, and for even n it is
+     * invariant together with the row of the blank.
+     */
+    private static boolean isSolvable(int[] tiles, int n, int blank) {
+        // Parity of the permutation taking each non-blank tile to its place in the sequence
+        final int[] sequence = new int[tiles.length - 1];
+        int length = 0;
+        for (final int tile : tiles) {
+            if (tile != 0) sequence[length++] = tile - 1;
+        }
+        final boolean[] seen = new boolean[length];
+        int parity = 0;
+        for (int start = 0; start < length; start++) {
+            if (seen[start]) continue;
+            for (int i = start; !seen[i]; i = sequence[i]) {
+                seen[i] = true;
+                parity++;
+            }
+            parity--;
+        }
+
+        // Measured from the goal row of the blank
+        if (n % 2 == 0) parity += n - 1 - blank / n;
+        return parity % 2 == 0;
+    }
+
+    /**
+     * @return {@link #FOUND}, or the smallest bound past {@code bound} met below this node.
+     */
+    private int search(int depth, int bound, int previous) {
+        final int estimate = depth + distance + extra;
+        if (estimate > bound) return estimate;
+        if (distance == 0) {
+            moves = depth;
+            return FOUND;
+        }
+
+        int smallest = Integer.MAX_VALUE;
+        final int row = rowOf[blank];
+        final int col = colOf[blank];
+        for (int direction = 0; direction < 4; direction++) {
+            final int site;
+            if (direction == 0) {
+                if (col == 0) continue;
+                site = blank - 1;
+            } else if (direction == 1) {
+                if (row == 0) continue;
+                site = blank - n;
+            } else if (direction == 2) {
+                if (col == n - 1) continue;
+                site = blank + 1;
+            } else {
+                if (row == n - 1) continue;
+                site = blank + n;
+            }
+
+            // Never undo the previous move
+            if (site == previous) continue;
+
+            final int from = blank;
+            move(site);
+            path[depth] = site;
+            final int next = search(depth + 1, bound, from);
+            if (next == FOUND) return FOUND;
+            move(from);
+
+            if (next < smallest) smallest = next;
+        }
+        return smallest;
+    }
+
+    /**
+     * Slide the tile at the site into the blank.
+     */
+    private void move(int site) {
+        final int tile = tiles[site];
+        final int goal = tile - 1;
+        distance -= Math.abs(rowOf[goal] - rowOf[site]) + Math.abs(colOf[goal] - colOf[site]);
+        distance += Math.abs(rowOf[goal] - rowOf[blank]) + Math.abs(colOf[goal] - colOf[blank]);
+        tiles[blank] = tile;
+        tiles[site] = 0;
+        siteOf[tile] = blank;
+        blank = site;
+
+        final int pattern = database == null ? -1 : database.patternOf(tile);
+        if (pattern >= 0) {
+            final int value = database.excess(pattern, siteOf);
+            extra += 2 * (value - excess[pattern]);
+            excess[pattern] = value;
+        }
+    }
+
+    public boolean isSolvable() {
+        return solvable;
+    }
+
+    /**
+     * Minimum number of moves to solve initial board; -1 if unsolvable.
+     */
+    public int moves() {
+        return moves;
+    }
+
+    public Iterable<Board> solution() {
+        if (!solvable) return null;
+
+        final Queue<Board> boards = new Queue<>();
+        Board board = initial;
+        boards.enqueue(board);
+        for (int move = 0; move < moves; move++) {
+            board = board.slide(path[move]);
+            boards.enqueue(board);
+        }
+        return boards;
+    }
+
+    /**
+     * Usage: {@code IDASolver puzzle.txt [database.bin]}.
+     */
+    public static void main(String[] args) throws IOException {
+
+        // create initial board from file
+        In in = new In(args[0]);
+        int n = in.readInt();
+        int[][] blocks = new int[n][n];
+        for (int i = 0; i < n; i++)
+            for (int j = 0; j < n; j++)
+                blocks[i][j] = in.readInt();
+        Board initial = new Board(blocks);
+
+        // solve the puzzle
+        PatternDatabase database = args.length > 1 ? PatternDatabase.load(Paths.get(args[1])) : null;
+        IDASolver solver = new IDASolver(initial, database);
+
+        // print solution to standard output
+        if (!solver.isSolvable())
+            StdOut.println("No solution possible");
+        else {
+            StdOut.println("Minimum number of moves = " + solver.moves());
+            for (Board board : solver.solution())
+                StdOut.println(board);
+        }
+    }
+}
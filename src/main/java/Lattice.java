@@ -0,0 +1,202 @@
+/**
+ * The topology of a percolation system: which sites neighbour each other and which
+ * sites lie on the top and bottom boundaries, precomputed into flat tables.
+ * <p>
+ * Every site has exactly {@link #degree()} neighbour slots. A slot past the edge of
+ * the lattice points at the sentinel site {@link #sites()}, which is never open, so
+ * engines such as {@link LatticePercolation} scan the slots without boundary checks.
+ * <p>
+ * A lattice is for site percolation unless it was made with {@link #bonds()}, in
+ * which case every site is present and the bonds between neighbours are opened.
+ */
+public final class Lattice {
+
+    // Boundary flags
+    static final byte TOP = 1;
+    static final byte BOTTOM = 2;
+
+    private final int sites;
+    private final int degree;
+    private final int[] neighbors;    // neighbors[site * degree + k], or sites past the edge
+    private final byte[] boundary;    // TOP and BOTTOM flags of each site
+
+    // Bond endpoints, only for bond percolation
+    private final int[] bondA;
+    private final int[] bondB;
+
+    private Lattice(int sites, int degree, int[] neighbors, byte[] boundary, int[] bondA, int[] bondB) {
+        this.sites = sites;
+        this.degree = degree;
+        this.neighbors = neighbors;
+        this.boundary = boundary;
+        this.bondA = bondA;
+        this.bondB = bondB;
+    }
+
+    private Lattice(int sites, int degree, int[] neighbors, byte[] boundary) {
+        this(sites, degree, neighbors, boundary, null, null);
+    }
+
+    /**
+     * An n-by-n square lattice, each site joined to its 4 nearest neighbours.
+     */
+    public static Lattice square(int n) {
+        return planar(n, new int[][] {{-1, 0}, {1, 0}, {0, -1}, {0, 1}});
+    }
+
+    /**
+     * An n-by-n triangular lattice, drawn as a square lattice plus one diagonal, so
+     * each site has 6 neighbours.
+     */
+    public static Lattice triangular(int n) {
+        return planar(n, new int[][] {{-1, 0}, {1, 0}, {0, -1}, {0, 1}, {-1, 1}, {1, -1}});
+    }
+
+    /**
+     * An n-by-n honeycomb lattice, drawn as a brick wall: each site is joined to its
+     * left and right neighbours, and to the site below when row + col is even or the
+     * site above when it is odd, so each site has 3 neighbours.
+     */
+    public static Lattice honeycomb(int n) {
+        if (n <= 0) throw new IllegalArgumentException();
+        final int sites = n * n;
+        final int[] neighbors = new int[3 * sites];
+        final byte[] boundary = new byte[sites];
+        for (int row = 0; row < n; row++) {
+            for (int col = 0; col < n; col++) {
+                final int site = row * n + col;
+                final int vertical = (row + col) % 2 == 0 ? row + 1 : row - 1;
+                neighbors[3 * site] = col > 0 ? site - 1 : sites;
+                neighbors[3 * site + 1] = col < n - 1 ? site + 1 : sites;
+                neighbors[3 * site + 2] = vertical >= 0 && vertical < n ? vertical * n + col : sites;
+                boundary[site] = flags(row, n);
+            }
+        }
+        return new Lattice(sites, 3, neighbors, boundary);
+    }
+
+    /**
+     * An n-by-n-by-n simple cubic lattice, each site joined to its 6 nearest
+     * neighbours, percolating from the layer z = 0 to the layer z = n - 1.
+     */
+    public static Lattice cubic(int n) {
+        if (n <= 0 || (long) n * n * n > Integer.MAX_VALUE / 6) throw new IllegalArgumentException();
+        final int layer = n * n;
+        final int sites = layer * n;
+        final int[] neighbors = new int[6 * sites];
+        final byte[] boundary = new byte[sites];
+        for (int z = 0; z < n; z++) {
+            for (int y = 0; y < n; y++) {
+                for (int x = 0; x < n; x++) {
+                    final int site = z * layer + y * n + x;
+                    final int base = 6 * site;
+                    neighbors[base] = z > 0 ? site - layer : sites;
+                    neighbors[base + 1] = z < n - 1 ? site + layer : sites;
+                    neighbors[base + 2] = y > 0 ? site - n : sites;
+                    neighbors[base + 3] = y < n - 1 ? site + n : sites;
+                    neighbors[base + 4] = x > 0 ? site - 1 : sites;
+                    neighbors[base + 5] = x < n - 1 ? site + 1 : sites;
+                    boundary[site] = flags(z, n);
+                }
+            }
+        }
+        return new Lattice(sites, 6, neighbors, boundary);
+    }
+
+    /**
+     * The same lattice for bond percolation: all sites present, bonds opened.
+     */
+    public Lattice bonds() {
+        if (bondA != null) return this;
+
+        // Every pair of neighbours appears twice in the table, keep it once
+        int count = 0;
+        for (int slot = 0; slot < neighbors.length; slot++) {
+            if (neighbors[slot] != sites && slot / degree < neighbors[slot]) count++;
+        }
+        final int[] a = new int[count];
+        final int[] b = new int[count];
+        int bond = 0;
+        for (int slot = 0; slot < neighbors.length; slot++) {
+            if (neighbors[slot] != sites && slot / degree < neighbors[slot]) {
+                a[bond] = slot / degree;
+                b[bond] = neighbors[slot];
+                bond++;
+            }
+        }
+        return new Lattice(sites, degree, neighbors, boundary, a, b);
+    }
+
+    // Square-like planar lattice from (row, col) offsets
+    private static Lattice planar(int n, int[][] offsets) {
+        if (n <= 0 || (long) n * n > Integer.MAX_VALUE / offsets.length) throw new IllegalArgumentException();
+        final int sites = n * n;
+        final int degree = offsets.length;
+        final int[] neighbors = new int[degree * sites];
+        final byte[] boundary = new byte[sites];
+        for (int row = 0; row < n; row++) {
+            for (int col = 0; col < n; col++) {
+                final int site = row * n + col;
+                for (int k = 0; k < degree; k++) {
+                    final int r = row + offsets[k][0];
+                    final int c = col + offsets[k][1];
+                    neighbors[site * degree + k] = r >= 0 && r < n && c >= 0 && c < n ? r * n + c : sites;
+                }
+                boundary[site] = flags(row, n);
+            }
+        }
+        return new Lattice(sites, degree, neighbors, boundary);
+    }
+
+    private static byte flags(int layer, int n) {
+        byte flags = 0;
+        if (layer == 0) flags |= TOP;
+        if (layer == n - 1) flags |= BOTTOM;
+        return flags;
+    }
+
+    /**
+     * @return number of sites, which is also the index of the sentinel site.
+     */
+    public int sites() {
+        return sites;
+    }
+
+    /**
+     * @return number of neighbour slots per site.
+     */
+    public int degree() {
+        return degree;
+    }
+
+    /**
+     * @return {@code true} if bonds rather than sites are opened.
+     */
+    public boolean isBond() {
+        return bondA != null;
+    }
+
+    /**
+     * @return number of things that can be opened: bonds for bond percolation, sites otherwise.
+     */
+    public int elements() {
+        return bondA != null ? bondA.length : sites;
+    }
+
+    int[] neighbors() {
+        return neighbors;
+    }
+
+    byte[] boundary() {
+        return boundary;
+    }
+
+    int[] bondA() {
+        return bondA;
+    }
+
+    int[] bondB() {
+        return bondB;
+    }
+
+}
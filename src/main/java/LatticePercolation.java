@@ -0,0 +1,184 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Site or bond percolation on any {@link Lattice}.
+ * <p>
+ * Opening a site walks the lattice's flat neighbour table; slots past the edge point
+ * at a sentinel that is never open, so the loop has no boundary checks. Components
+ * carry top and bottom flags on their roots, as in {@link Percolation}.
+ */
+public class LatticePercolation {
+
+    private final Lattice lattice;
+    private final int degree;
+    private final int[] neighbors;
+    private final byte[] boundary;
+
+    // Open elements (sites or bonds); for sites, the sentinel bit stays clear
+    private final long[] open;
+    private int openCount;
+    private boolean percolates;
+
+    private final int[] parent;
+    private final int[] size;
+    private final byte[] status;
+
+    // Shuffle buffer for sweep()
+    private int[] order;
+
+    /**
+     * Create a system on {@code lattice} with every element blocked.
+     */
+    public LatticePercolation(Lattice lattice) {
+        if (lattice == null) throw new IllegalArgumentException();
+        this.lattice = lattice;
+        degree = lattice.degree();
+        neighbors = lattice.neighbors();
+        boundary = lattice.boundary();
+        open = new long[(lattice.elements() + 1 + 63) >>> 6];
+        parent = new int[lattice.sites()];
+        size = new int[lattice.sites()];
+        status = new byte[lattice.sites()];
+        clear();
+    }
+
+    /**
+     * Block every element again.
+     */
+    public void reset() {
+        Arrays.fill(open, 0);
+        clear();
+    }
+
+    private void clear() {
+        openCount = 0;
+        percolates = false;
+        for (int site = 0; site < parent.length; site++) {
+            parent[site] = site;
+            size[site] = 1;
+            // With bonds every site is present from the start
+            status[site] = lattice.isBond() ? boundary[site] : 0;
+            if (status[site] == (Lattice.TOP | Lattice.BOTTOM)) percolates = true;
+        }
+    }
+
+    /**
+     * Open a site, or a bond for bond percolation, if it is not open already.
+     *
+     * @throws IllegalArgumentException unless {@code 0 <= element < lattice.elements()}
+     */
+    public void open(int element) {
+        if (element < 0 || element >= lattice.elements()) throw new IllegalArgumentException();
+        if (isOpenElement(element)) return;
+        open[element >>> 6] |= 1L << element;
+        openCount++;
+
+        if (lattice.isBond()) {
+            union(lattice.bondA()[element], lattice.bondB()[element]);
+            return;
+        }
+
+        status[element] = boundary[element];
+        if (status[element] == (Lattice.TOP | Lattice.BOTTOM)) percolates = true;
+        final int base = element * degree;
+        for (int k = 0; k < degree; k++) {
+            final int neighbor = neighbors[base + k];
+            if (isOpenElement(neighbor)) union(element, neighbor);
+        }
+    }
+
+    /**
+     * @return {@code true} if the site or bond is open.
+     */
+    public boolean isOpen(int element) {
+        if (element < 0 || element >= lattice.elements()) throw new IllegalArgumentException();
+        return isOpenElement(element);
+    }
+
+    /**
+     * @return {@code true} if the site is connected to the top boundary.
+     */
+    public boolean isFull(int site) {
+        if (site < 0 || site >= lattice.sites()) throw new IllegalArgumentException();
+        if (!lattice.isBond() && !isOpenElement(site)) return false;
+        return (status[find(site)] & Lattice.TOP) != 0;
+    }
+
+    /**
+     * @return number of open sites or bonds.
+     */
+    public int numberOfOpen() {
+        return openCount;
+    }
+
+    /**
+     * Does the system percolate?
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /**
+     * Block every element, then open elements in random order until the system
+     * percolates (Newman–Ziff).
+     *
+     * @return number of open elements when the system first percolates
+     */
+    public int sweep(SplittableRandom random) {
+        reset();
+        final int elements = lattice.elements();
+        if (order == null) order = new int[elements];
+
+        // Start from the identity so a trial depends only on its own random stream
+        for (int i = 0; i < elements; i++) {
+            order[i] = i;
+        }
+
+        int opened = 0;
+        while (!percolates) {
+            // Incremental Fisher–Yates, order[opened..] holds the elements still blocked
+            final int pick = random.nextInt(opened, elements);
+            final int element = order[pick];
+            order[pick] = order[opened];
+            order[opened++] = element;
+            open(element);
+        }
+        return opened;
+    }
+
+    private boolean isOpenElement(int element) {
+        return (open[element >>> 6] & (1L << element)) != 0;
+    }
+
+    private int find(int p) {
+        int q = p;
+        while (q != parent[q]) {
+            parent[q] = parent[parent[q]];    // path compression by halving
+            q = parent[q];
+        }
+        return q;
+    }
+
+    private void union(int p, int q) {
+        final int rootP = find(p);
+        final int rootQ = find(q);
+        if (rootP == rootQ) return;
+
+        // Make smaller root point to larger one
+        final int root;
+        if (size[rootP] < size[rootQ]) {
+            root = rootQ;
+            parent[rootP] = rootQ;
+            size[rootQ] += size[rootP];
+        } else {
+            root = rootP;
+            parent[rootQ] = rootP;
+            size[rootP] += size[rootQ];
+        }
+
+        status[root] = (byte) (status[rootP] | status[rootQ]);
+        if (status[root] == (Lattice.TOP | Lattice.BOTTOM)) percolates = true;
+    }
+
+}
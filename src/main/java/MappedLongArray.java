@@ -0,0 +1,60 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A long-indexed array of longs backed by a memory-mapped scratch file, so it can
+ * outgrow both the heap and the {@code int} index range of a Java array.
+ * <p>
+ * A single mapping is limited to 2 GiB, so the file is mapped in 1 GiB segments.
+ * New files are zero filled and created sparse, so untouched pages cost no disk.
+ * The file is deleted when the array is closed.
+ */
+final class MappedLongArray implements Closeable {
+
+    // 2^27 longs is 1 GiB per mapping
+    private static final int SEGMENT_SHIFT = 27;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+    private final FileChannel channel;
+    private final LongBuffer[] segments;
+
+    /**
+     * Create a zero-filled array of {@code length} longs in a new file at {@code path}.
+     *
+     * @throws IllegalArgumentException if {@code length < 0}
+     * @throws IOException if the file exists already or cannot be mapped
+     */
+    MappedLongArray(Path path, long length) throws IOException {
+        if (length < 0) throw new IllegalArgumentException();
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.SPARSE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+
+        segments = new LongBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << SEGMENT_SHIFT;
+            long size = Math.min(SEGMENT_MASK + 1, length - start);
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, start * Long.BYTES, size * Long.BYTES)
+                    .order(ByteOrder.nativeOrder())
+                    .asLongBuffer();
+        }
+    }
+
+    long get(long index) {
+        return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+    }
+
+    void set(long index, long value) {
+        segments[(int) (index >>> SEGMENT_SHIFT)].put((int) (index & SEGMENT_MASK), value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+}
@@ -0,0 +1,194 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Percolation on an n-by-n grid too large for the heap or for {@code int} site indexes.
+ * <p>
+ * Sites are indexed with {@code long}, and the union–find lives in a memory-mapped
+ * scratch file rather than on the heap, so there is nothing for the collector to scan.
+ * Each site takes one 8-byte entry that packs its open bit together with the
+ * union–find state, so checking a neighbour touches a single page:
+ * <pre>
+ *   bit  63      open
+ *   bit  62      root connects to the bottom row
+ *   bit  61      root connects to the top row
+ *   bits 55..60  rank of the root
+ *   bits  0..54  parent
+ * </pre>
+ * Tracking the top and bottom rows on the roots replaces the virtual source and sink,
+ * so full sites are never reported through backwash.
+ */
+public class MappedPercolation implements Closeable {
+
+    // Largest n whose n * n sites fit the parent field
+    private static final long MAX_N = 1L << 27;
+
+    private static final long OPEN = 1L << 63;
+    private static final long BOTTOM = 1L << 62;
+    private static final long TOP = 1L << 61;
+    private static final int RANK_SHIFT = 55;
+    private static final long RANK = 63L << RANK_SHIFT;
+    private static final long PARENT = (1L << RANK_SHIFT) - 1;
+
+    private final long n;
+    private final MappedLongArray sites;
+    private long openCount;
+    private boolean percolates;
+
+    /**
+     * Create an n-by-n grid, with all sites blocked, backed by a scratch file in
+     * {@code directory}.
+     *
+     * @param  n the number of sites in a row and column
+     * @throws IllegalArgumentException if {@code n <= 0} or {@code n > 2^27}
+     * @throws IOException if the scratch file cannot be created
+     */
+    public MappedPercolation(long n, Path directory) throws IOException {
+        if (n <= 0 || n > MAX_N) throw new IllegalArgumentException();
+        this.n = n;
+        Path file = Files.createTempFile(directory, "percolation", ".bin");
+        Files.delete(file);
+        sites = new MappedLongArray(file, n * n);
+    }
+
+    /**
+     * Open site if it is not open already.
+     */
+    public void open(long row, long col) {
+        validate(row, col);
+        final long site = to1D(row, col);
+        if (isOpenSite(site)) return;
+
+        long entry = OPEN | site;
+        if (row == 1) entry |= TOP;
+        if (row == n) entry |= BOTTOM;
+        sites.set(site, entry);
+        openCount++;
+        if ((entry & (TOP | BOTTOM)) == (TOP | BOTTOM)) percolates = true;
+
+        if (row != 1 && isOpenSite(site - n)) union(site, site - n);
+        if (row != n && isOpenSite(site + n)) union(site, site + n);
+        if (col != 1 && isOpenSite(site - 1)) union(site, site - 1);
+        if (col != n && isOpenSite(site + 1)) union(site, site + 1);
+    }
+
+    /**
+     * @return {@code true} if the site is open.
+     */
+    public boolean isOpen(long row, long col) {
+        validate(row, col);
+        return isOpenSite(to1D(row, col));
+    }
+
+    /**
+     * @return {@code true} if the site is connected to the top row.
+     */
+    public boolean isFull(long row, long col) {
+        validate(row, col);
+        final long site = to1D(row, col);
+        return isOpenSite(site) && (sites.get(find(site)) & TOP) != 0;
+    }
+
+    /**
+     * @return number of open sites.
+     */
+    public long numberOfOpenSites() {
+        return openCount;
+    }
+
+    /**
+     * Does the system percolate?
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /**
+     * Release the scratch file.
+     */
+    @Override
+    public void close() throws IOException {
+        sites.close();
+    }
+
+    private boolean isOpenSite(long site) {
+        return sites.get(site) < 0;
+    }
+
+    private long find(long site) {
+        long p = site;
+        long entry = sites.get(p);
+        while ((entry & PARENT) != p) {
+            // Path compression by halving, keeping the open bit of p
+            final long grandparent = sites.get(entry & PARENT) & PARENT;
+            sites.set(p, (entry & ~PARENT) | grandparent);
+            p = grandparent;
+            entry = sites.get(p);
+        }
+        return p;
+    }
+
+    private void union(long p, long q) {
+        long rootP = find(p);
+        long rootQ = find(q);
+        if (rootP == rootQ) return;
+
+        long entryP = sites.get(rootP);
+        long entryQ = sites.get(rootQ);
+
+        // Make root of smaller rank point to root of larger rank
+        if ((entryP & RANK) < (entryQ & RANK)) {
+            final long root = rootP;
+            rootP = rootQ;
+            rootQ = root;
+            final long entry = entryP;
+            entryP = entryQ;
+            entryQ = entry;
+        }
+        if ((entryP & RANK) == (entryQ & RANK)) entryP += 1L << RANK_SHIFT;
+
+        sites.set(rootQ, (entryQ & ~PARENT) | rootP);
+        entryP |= entryQ & (TOP | BOTTOM);
+        sites.set(rootP, entryP);
+        if ((entryP & (TOP | BOTTOM)) == (TOP | BOTTOM)) percolates = true;
+    }
+
+    /**
+     * Validate that the row and column exists.
+     */
+    private void validate(long row, long col) {
+        if (row < 1 || row > n || col < 1 || col > n) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Converts two dimensional 1-indexed to one dimensional 0-indexed.
+     */
+    private long to1D(long row, long col) {
+        return (row - 1) * n + (col - 1);
+    }
+
+    /**
+     * Usage: {@code MappedPercolation n directory seed}
+     */
+    public static void main(String[] args) throws IOException {
+        long n = Long.parseLong(args[0]);
+        Path directory = Paths.get(args[1]);
+        SplittableRandom random = new SplittableRandom(Long.parseLong(args[2]));
+
+        try (MappedPercolation percolation = new MappedPercolation(n, directory)) {
+            while (!percolation.percolates()) {
+                percolation.open(random.nextLong(1, n + 1), random.nextLong(1, n + 1));
+            }
+            StdOut.printf("%d of %d sites open%n", percolation.numberOfOpenSites(), n * n);
+        }
+    }
+
+}
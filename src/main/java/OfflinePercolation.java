@@ -0,0 +1,271 @@
+import java.util.Arrays;
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Percolation on an n-by-n grid whose sites may be closed again, answered offline
+ * for a whole log of opens, closes and queries at once.
+ * <p>
+ * Union–find cannot delete, so the log is solved by divide and conquer over time.
+ * Every adjacency between two open sites is alive for an interval of the log; each
+ * interval is stored in the O(log T) nodes of a segment tree over the T events that
+ * cover it. A depth-first walk of the tree applies a node's unions to a
+ * {@link RollbackUF} on the way down and rolls them back on the way up, so each
+ * query leaf sees exactly the connections alive at its time. That costs
+ * O(log T log n) per event, amortized.
+ */
+public class OfflinePercolation {
+
+    // Event types
+    private static final byte OPEN = 0;
+    private static final byte CLOSE = 1;
+    private static final byte FULL = 2;
+    private static final byte PERCOLATES = 3;
+    private static final byte BLOCKED = 4;    // a FULL query on a blocked site
+
+    // Component flags
+    private static final int TOP = 1;
+    private static final int BOTTOM = 2;
+
+    private final int n;
+
+    // The event log
+    private byte[] types = new byte[16];
+    private int[] sites = new int[16];
+    private int events;
+    private int queries;
+
+    // Operations stored on segment tree nodes, as linked lists: union(a, b), or mark(a, ~b) when b < 0
+    private int[] head;
+    private int[] next;
+    private int[] opA;
+    private int[] opB;
+    private int ops;
+
+    private RollbackUF uf;
+    private boolean[] answers;
+    private int[] queryIndex;
+    private int[] queriesBefore;
+
+    /**
+     * Create an n-by-n grid, with all sites blocked.
+     *
+     * @param  n the number of sites in a row and column
+     * @throws IllegalArgumentException if {@code n <= 0}
+     */
+    public OfflinePercolation(int n) {
+        if (n <= 0) throw new IllegalArgumentException();
+        this.n = n;
+    }
+
+    /**
+     * Log opening a site; has no effect if it is open already.
+     */
+    public void open(int row, int col) {
+        log(OPEN, site(row, col));
+    }
+
+    /**
+     * Log blocking a site; has no effect if it is blocked already.
+     */
+    public void close(int row, int col) {
+        log(CLOSE, site(row, col));
+    }
+
+    /**
+     * Log asking whether a site is full.
+     *
+     * @return index of the answer in {@link #solve()}
+     */
+    public int queryFull(int row, int col) {
+        log(FULL, site(row, col));
+        return queries++;
+    }
+
+    /**
+     * Log asking whether the system percolates.
+     *
+     * @return index of the answer in {@link #solve()}
+     */
+    public int queryPercolates() {
+        log(PERCOLATES, -1);
+        return queries++;
+    }
+
+    /**
+     * Answer every logged query, in the order they were logged.
+     */
+    public boolean[] solve() {
+        final int sitesCount = n * n;
+        answers = new boolean[queries];
+        queryIndex = new int[events];
+        queriesBefore = new int[events + 1];
+        head = new int[Math.max(1, 4 * events)];
+        Arrays.fill(head, -1);
+        next = new int[16];
+        opA = new int[16];
+        opB = new int[16];
+        ops = 0;
+
+        // Sweep the log once to find when every site and adjacency is alive
+        final int[] openSince = new int[sitesCount];
+        final int[] edgeSince = new int[2 * sitesCount];    // 2a: (a, a + 1), 2a + 1: (a, a + n)
+        Arrays.fill(openSince, -1);
+        Arrays.fill(edgeSince, -1);
+        int query = 0;
+        for (int t = 0; t < events; t++) {
+            final int site = sites[t];
+            queriesBefore[t + 1] = queriesBefore[t];
+            switch (types[t]) {
+                case OPEN:
+                    if (openSince[site] >= 0) break;
+                    openSince[site] = t;
+                    for (int k = 0; k < 4; k++) {
+                        final int edge = edge(site, k);
+                        if (edge >= 0 && openSince[neighbor(site, k)] >= 0) edgeSince[edge] = t;
+                    }
+                    break;
+                case CLOSE:
+                    if (openSince[site] < 0) break;
+                    closeSite(site, t, openSince, edgeSince);
+                    break;
+                default:
+                    queryIndex[t] = query++;
+                    queriesBefore[t + 1]++;
+                    // Blocked sites are never full, no need to ask the union-find
+                    if (types[t] == FULL && openSince[site] < 0) types[t] = BLOCKED;
+                    break;
+            }
+        }
+        for (int site = 0; site < sitesCount; site++) {
+            if (openSince[site] >= 0) closeSite(site, events, openSince, edgeSince);
+        }
+
+        uf = new RollbackUF(sitesCount);
+        if (events > 0) walk(1, 0, events, false);
+        uf = null;
+        return answers;
+    }
+
+    // End the life of an open site and its live adjacencies at time t
+    private void closeSite(int site, int t, int[] openSince, int[] edgeSince) {
+        for (int k = 0; k < 4; k++) {
+            final int edge = edge(site, k);
+            if (edge < 0 || edgeSince[edge] < 0) continue;
+            add(1, 0, events, edgeSince[edge], t, site, neighbor(site, k));
+            edgeSince[edge] = -1;
+        }
+        int flags = 0;
+        if (site < n) flags |= TOP;
+        if (site >= n * n - n) flags |= BOTTOM;
+        if (flags != 0) add(1, 0, events, openSince[site], t, site, ~flags);
+        openSince[site] = -1;
+    }
+
+    // Store an operation on the segment tree nodes covering [from, to)
+    private void add(int node, int lo, int hi, int from, int to, int a, int b) {
+        if (to <= lo || hi <= from) return;
+        if (from <= lo && hi <= to) {
+            if (ops == opA.length) {
+                next = Arrays.copyOf(next, 2 * ops);
+                opA = Arrays.copyOf(opA, 2 * ops);
+                opB = Arrays.copyOf(opB, 2 * ops);
+            }
+            opA[ops] = a;
+            opB[ops] = b;
+            next[ops] = head[node];
+            head[node] = ops++;
+            return;
+        }
+        final int mid = (lo + hi) >>> 1;
+        add(2 * node, lo, mid, from, to, a, b);
+        add(2 * node + 1, mid, hi, from, to, a, b);
+    }
+
+    private void walk(int node, int lo, int hi, boolean spanning) {
+        // Nothing to answer in this time range
+        if (queriesBefore[hi] == queriesBefore[lo]) return;
+
+        uf.checkpoint();
+        boolean percolates = spanning;
+        for (int op = head[node]; op >= 0; op = next[op]) {
+            if (opB[op] >= 0) uf.union(opA[op], opB[op]);
+            else uf.mark(opA[op], ~opB[op]);
+            if (uf.flags(opA[op]) == (TOP | BOTTOM)) percolates = true;
+        }
+
+        if (hi - lo == 1) {
+            if (types[lo] == PERCOLATES) answers[queryIndex[lo]] = percolates;
+            else if (types[lo] == FULL) answers[queryIndex[lo]] = (uf.flags(sites[lo]) & TOP) != 0;
+        } else {
+            final int mid = (lo + hi) >>> 1;
+            walk(2 * node, lo, mid, percolates);
+            walk(2 * node + 1, mid, hi, percolates);
+        }
+        uf.rollback();
+    }
+
+    // Adjacency k of a site (0 right, 1 down, 2 left, 3 up), or -1 past the boundary
+    private int edge(int site, int k) {
+        final int col = site % n;
+        switch (k) {
+            case 0:  return col != n - 1 ? 2 * site : -1;
+            case 1:  return site < n * n - n ? 2 * site + 1 : -1;
+            case 2:  return col != 0 ? 2 * (site - 1) : -1;
+            default: return site >= n ? 2 * (site - n) + 1 : -1;
+        }
+    }
+
+    private int neighbor(int site, int k) {
+        switch (k) {
+            case 0:  return site + 1;
+            case 1:  return site + n;
+            case 2:  return site - 1;
+            default: return site - n;
+        }
+    }
+
+    private void log(byte type, int site) {
+        if (events == types.length) {
+            types = Arrays.copyOf(types, 2 * events);
+            sites = Arrays.copyOf(sites, 2 * events);
+        }
+        types[events] = type;
+        sites[events] = site;
+        events++;
+    }
+
+    /**
+     * Validate that the row and column exists and convert to 0-indexed.
+     */
+    private int site(int row, int col) {
+        if (row < 1 || row > n || col < 1 || col > n) {
+            throw new IllegalArgumentException();
+        }
+        return (row - 1) * n + (col - 1);
+    }
+
+    /**
+     * Reads n and then a log of events, one per line: {@code o row col} to open,
+     * {@code c row col} to close, {@code f row col} to ask whether a site is full and
+     * {@code p} to ask whether the system percolates. Prints every answer in order.
+     */
+    public static void main(String[] args) {
+        In in = new In(args[0]);
+        OfflinePercolation percolation = new OfflinePercolation(in.readInt());
+        while (!in.isEmpty()) {
+            switch (in.readString()) {
+                case "o": percolation.open(in.readInt(), in.readInt()); break;
+                case "c": percolation.close(in.readInt(), in.readInt()); break;
+                case "f": percolation.queryFull(in.readInt(), in.readInt()); break;
+                case "p": percolation.queryPercolates(); break;
+                default: throw new IllegalArgumentException("unknown event");
+            }
+        }
+        for (boolean answer : percolation.solve()) {
+            StdOut.println(answer);
+        }
+    }
+
+}
@@ -0,0 +1,412 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Disjoint additive pattern databases for the n-by-n sliding puzzle.
+ * <p>
+ * Each pattern is a set of tiles. Its table holds, for every placement of those
+ * tiles, the fewest moves of pattern tiles needed to bring them home when all other
+ * tiles are interchangeable with the blank. Since only pattern tiles' moves are
+ * counted and the patterns are disjoint, the values add up to a lower bound on the
+ * moves to solve the board, never below manhattan distance.
+ * <p>
+ * That cost minus the pattern tiles' manhattan distance is always even. Half of it
+ * is stored in 4 bits per placement, clamped at 15, indexed by the rank of the
+ * placement as a k-permutation of the n * n sites. Tables are built offline by
+ * breadth-first search and saved to a little-endian binary file: a magic int,
+ * {@code n}, the number of patterns, each pattern as its size followed by its tiles,
+ * then the packed tables. Saved files are loaded with memory mapping.
+ */
+public final class PatternDatabase {
+
+    private static final int MAGIC = 0x50444231;
+    private static final int MAX_EXCESS = 15;
+
+    private final int n;
+    private final int[][] patterns;
+    private final int[] patternOf;
+    private final ByteBuffer data;
+    private final int[] offsets;
+
+    private PatternDatabase(int n, int[][] patterns, ByteBuffer data, int[] offsets) {
+        this.n = n;
+        this.patterns = patterns;
+        this.data = data;
+        this.offsets = offsets;
+
+        patternOf = new int[n * n];
+        Arrays.fill(patternOf, -1);
+        for (int pattern = 0; pattern < patterns.length; pattern++) {
+            for (final int tile : patterns[pattern]) {
+                patternOf[tile] = pattern;
+            }
+        }
+    }
+
+    /**
+     * @return the 6-6-3 partition for the 15-puzzle, or two halves of the 8-puzzle.
+     * @throws IllegalArgumentException for any other n
+     */
+    public static int[][] defaultPatterns(int n) {
+        if (n == 3) return new int[][] {{1, 2, 3, 4}, {5, 6, 7, 8}};
+        if (n == 4) return new int[][] {{1, 5, 6, 9, 10, 13}, {7, 8, 11, 12, 14, 15}, {2, 3, 4}};
+        throw new IllegalArgumentException();
+    }
+
+    /**
+     * Build the tables for the given disjoint patterns by breadth-first search.
+     *
+     * @throws IllegalArgumentException if a tile is out of range or in two patterns,
+     *         or if a pattern has too many placements times blank sites to index by int
+     */
+    public static PatternDatabase build(int n, int[][] patterns) {
+        validate(n, patterns);
+
+        final int[] offsets = new int[patterns.length + 1];
+        for (int pattern = 0; pattern < patterns.length; pattern++) {
+            offsets[pattern + 1] = offsets[pattern] + (placements(n * n, patterns[pattern].length) + 1) / 2;
+        }
+
+        final byte[] tables = new byte[offsets[patterns.length]];
+        for (int pattern = 0; pattern < patterns.length; pattern++) {
+            new Builder(n, patterns[pattern]).run(tables, offsets[pattern]);
+        }
+        return new PatternDatabase(n, copyOf(patterns), ByteBuffer.wrap(tables), offsets);
+    }
+
+    /**
+     * Map a file written by {@link #write}.
+     */
+    public static PatternDatabase load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("file too large");
+            final ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (data.getInt() != MAGIC) throw new IOException("not a pattern database");
+
+            final int n = data.getInt();
+            final int[][] patterns = new int[data.getInt()][];
+            for (int pattern = 0; pattern < patterns.length; pattern++) {
+                patterns[pattern] = new int[data.getInt()];
+                for (int i = 0; i < patterns[pattern].length; i++) {
+                    patterns[pattern][i] = data.getInt();
+                }
+            }
+            try {
+                validate(n, patterns);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("corrupt header", e);
+            }
+
+            final int[] offsets = new int[patterns.length + 1];
+            offsets[0] = data.position();
+            for (int pattern = 0; pattern < patterns.length; pattern++) {
+                offsets[pattern + 1] = offsets[pattern] + (placements(n * n, patterns[pattern].length) + 1) / 2;
+            }
+            if (offsets[patterns.length] != data.limit()) throw new IOException("wrong size for the patterns");
+
+            return new PatternDatabase(n, patterns, data, offsets);
+        }
+    }
+
+    /**
+     * Save the database in the binary format.
+     */
+    public void write(Path path) throws IOException {
+        int header = 3 * Integer.BYTES;
+        for (final int[] pattern : patterns) {
+            header += (pattern.length + 1) * Integer.BYTES;
+        }
+        final ByteBuffer bytes = ByteBuffer.allocate(header).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(MAGIC).putInt(n).putInt(patterns.length);
+        for (final int[] pattern : patterns) {
+            bytes.putInt(pattern.length);
+            for (final int tile : pattern) {
+                bytes.putInt(tile);
+            }
+        }
+        bytes.flip();
+
+        final ByteBuffer tables = data.duplicate();
+        tables.position(offsets[0]).limit(offsets[patterns.length]);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining() || tables.hasRemaining()) {
+                channel.write(new ByteBuffer[] {bytes, tables});
+            }
+        }
+    }
+
+    public int dimension() {
+        return n;
+    }
+
+    public int numberOfPatterns() {
+        return patterns.length;
+    }
+
+    /**
+     * @return a copy of the tiles of the given pattern.
+     */
+    public int[] pattern(int pattern) {
+        return patterns[pattern].clone();
+    }
+
+    /**
+     * @return the pattern holding the tile, or -1 if none does.
+     */
+    int patternOf(int tile) {
+        return patternOf[tile];
+    }
+
+    /**
+     * @return half the pattern's cost beyond the manhattan distance of its tiles,
+     *         given the site of every tile.
+     */
+    int excess(int pattern, int[] siteOf) {
+        final int rank = rank(patterns[pattern], siteOf, n * n);
+        final int entry = data.get(offsets[pattern] + (rank >>> 1));
+        return (rank & 1) == 0 ? entry & 0xF : (entry >>> 4) & 0xF;
+    }
+
+    /**
+     * @return the number of the n * n sites' k-permutations, N! / (N - k)!.
+     */
+    private static int placements(int sites, int k) {
+        long count = 1;
+        for (int i = 0; i < k; i++) {
+            count *= sites - i;
+        }
+        return (int) count;
+    }
+
+    /**
+     * Rank the sites of the pattern's tiles in mixed radix: each site counts only
+     * the sites not taken by earlier tiles.
+     */
+    private static int rank(int[] pattern, int[] siteOf, int sites) {
+        int rank = 0;
+        for (int i = 0; i < pattern.length; i++) {
+            final int site = siteOf[pattern[i]];
+            int digit = site;
+            for (int j = 0; j < i; j++) {
+                if (siteOf[pattern[j]] < site) digit--;
+            }
+            rank = rank * (sites - i) + digit;
+        }
+        return rank;
+    }
+
+    private static void validate(int n, int[][] patterns) {
+        if (n < 2 || patterns == null) throw new IllegalArgumentException();
+        final boolean[] used = new boolean[n * n];
+        for (final int[] pattern : patterns) {
+            if (pattern == null || pattern.length == 0) throw new IllegalArgumentException();
+            for (final int tile : pattern) {
+                if (tile < 1 || tile >= n * n || used[tile]) throw new IllegalArgumentException();
+                used[tile] = true;
+            }
+
+            // Every (placement, blank site) pair must have an int index
+            long states = n * n;
+            for (int i = 0; i < pattern.length; i++) {
+                states *= n * n - i;
+            }
+            if (states > Integer.MAX_VALUE) throw new IllegalArgumentException("pattern too large: " + pattern.length);
+        }
+    }
+
+    private static int[][] copyOf(int[][] patterns) {
+        final int[][] copy = new int[patterns.length][];
+        for (int pattern = 0; pattern < patterns.length; pattern++) {
+            copy[pattern] = patterns[pattern].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Breadth-first search over placements of one pattern from the goal, one layer per
+     * pattern move. A state is a placement with a blank site, and the blank moving
+     * through non-pattern sites is free, so each state reached is flooded to the whole
+     * region its blank can reach before the moves out of it are taken.
+     */
+    private static final class Builder {
+
+        private final int n;
+        private final int sites;
+        private final int[] pattern;
+        private final int[] siteOf;
+        private final int[] occupant;
+        private final long[] visited;
+        private final byte[] excess;
+        private final int[] region;
+        private final int[] digits;
+
+        private int[] layer = new int[16];
+        private int layerSize;
+        private int[] next = new int[16];
+        private int nextSize;
+
+        Builder(int n, int[] pattern) {
+            this.n = n;
+            this.sites = n * n;
+            this.pattern = pattern;
+            siteOf = new int[sites];
+            occupant = new int[sites];
+            region = new int[sites];
+            digits = new int[pattern.length];
+
+            final int placements = placements(sites, pattern.length);
+            visited = new long[(int) (((long) placements * sites + 63) >>> 6)];
+            excess = new byte[placements];
+            Arrays.fill(excess, (byte) -1);
+        }
+
+        void run(byte[] tables, int offset) {
+            // Pattern tiles home, blank in the corner
+            for (final int tile : pattern) {
+                siteOf[tile] = tile - 1;
+            }
+            push(rank(pattern, siteOf, sites) * sites + sites - 1);
+
+            for (int cost = 0; nextSize != 0; cost++) {
+                final int[] swap = layer;
+                layer = next;
+                layerSize = nextSize;
+                next = swap;
+                nextSize = 0;
+
+                for (int i = 0; i < layerSize; i++) {
+                    expand(layer[i], cost);
+                }
+            }
+
+            for (int placement = 0; placement < excess.length; placement++) {
+                tables[offset + (placement >>> 1)] |= (byte) ((excess[placement] & 0xF) << ((placement & 1) << 2));
+            }
+        }
+
+        private void expand(int state, int cost) {
+            if (isVisited(state)) return;
+
+            final int rank = state / sites;
+            unrank(rank);
+            if (excess[rank] < 0) excess[rank] = (byte) Math.min(MAX_EXCESS, (cost - manhattan()) / 2);
+
+            // Flood the blank's region
+            int size = 0;
+            region[size++] = state % sites;
+            visit(state);
+            for (int i = 0; i < size; i++) {
+                final int site = region[i];
+                final int row = site / n;
+                final int col = site % n;
+                if (col != 0) size = reach(rank, site, site - 1, size);
+                if (row != 0) size = reach(rank, site, site - n, size);
+                if (col != n - 1) size = reach(rank, site, site + 1, size);
+                if (row != n - 1) size = reach(rank, site, site + n, size);
+            }
+        }
+
+        /**
+         * From the blank at {@code site}, spread the region into a free neighbour or
+         * queue the move of the pattern tile there for the next layer.
+         */
+        private int reach(int rank, int site, int neighbor, int size) {
+            final int tile = occupant[neighbor];
+            if (tile == 0) {
+                final int state = rank * sites + neighbor;
+                if (!isVisited(state)) {
+                    visit(state);
+                    region[size++] = neighbor;
+                }
+                return size;
+            }
+
+            siteOf[tile] = site;
+            final int state = rank(pattern, siteOf, sites) * sites + neighbor;
+            siteOf[tile] = neighbor;
+            if (!isVisited(state)) push(state);
+            return size;
+        }
+
+        /**
+         * Set siteOf and occupant from the rank, undoing {@link PatternDatabase#rank}.
+         */
+        private void unrank(int rank) {
+            for (int i = pattern.length - 1; i >= 0; i--) {
+                digits[i] = rank % (sites - i);
+                rank /= sites - i;
+            }
+
+            Arrays.fill(occupant, 0);
+            for (int i = 0; i < pattern.length; i++) {
+                // The digit-th site not taken by earlier tiles
+                int site = -1;
+                for (int free = digits[i]; free >= 0; free--) {
+                    do {
+                        site++;
+                    } while (occupant[site] != 0);
+                }
+                siteOf[pattern[i]] = site;
+                occupant[site] = pattern[i];
+            }
+        }
+
+        private int manhattan() {
+            int distance = 0;
+            for (final int tile : pattern) {
+                final int site = siteOf[tile];
+                distance += Math.abs((tile - 1) / n - site / n) + Math.abs((tile - 1) % n - site % n);
+            }
+            return distance;
+        }
+
+        private boolean isVisited(int state) {
+            return (visited[state >>> 6] & (1L << state)) != 0;
+        }
+
+        private void visit(int state) {
+            visited[state >>> 6] |= 1L << state;
+        }
+
+        private void push(int state) {
+            if (nextSize == next.length) next = Arrays.copyOf(next, next.length << 1);
+            next[nextSize++] = state;
+        }
+    }
+
+    /**
+     * Usage: {@code PatternDatabase n output.bin [pattern ...]} where each pattern is a
+     * comma-separated list of tiles, by default {@link #defaultPatterns}.
+     */
+    public static void main(String[] args) throws IOException {
+        final int n = Integer.parseInt(args[0]);
+        final int[][] patterns;
+        if (args.length > 2) {
+            patterns = new int[args.length - 2][];
+            for (int pattern = 0; pattern < patterns.length; pattern++) {
+                patterns[pattern] = Arrays.stream(args[pattern + 2].split(",")).mapToInt(Integer::parseInt).toArray();
+            }
+        } else {
+            patterns = defaultPatterns(n);
+        }
+
+        final long start = System.nanoTime();
+        final PatternDatabase database = build(n, patterns);
+        database.write(Paths.get(args[1]));
+
+        StdOut.printf("%-16s= %d%n", "patterns", patterns.length);
+        StdOut.printf("%-16s= %d%n", "bytes", database.offsets[patterns.length]);
+        StdOut.printf("%-16s= %.1f%n", "seconds", (System.nanoTime() - start) / 1e9);
+    }
+
+}
@@ -1,14 +1,32 @@
-import edu.princeton.cs.algs4.WeightedQuickUnionUF;
+import java.util.Arrays;
 
 /**
  * http://coursera.cs.princeton.edu/algs4/assignments/percolation.html
  */
 public class Percolation {
 
+    // Status bits, only meaningful on union-find roots
+    private static final byte TOP = 1;
+    private static final byte BOTTOM = 2;
+
     private final int n;
-    private boolean[][] open;
+    // Open state, one bit per site in row-major 0-indexed order
+    private final long[] open;
     private int openCount;
-    private final WeightedQuickUnionUF uf;
+    // Weighted quick union, kept inline so reset() can restore only the sites it touched
+    private final int[] parent;
+    private final int[] size;
+    // Whether the component reaches the top and bottom rows, in place of virtual sites
+    private final byte[] status;
+    private boolean percolates;
+
+    // Cluster statistics, kept up to date by openSite and union
+    // clusterSizes[k] = number of clusters of exactly k sites, built on the first
+    // query so grids that never ask, like the ones trial sweeps reuse, skip 4 bytes a site
+    private int[] clusterSizes;
+    private int clusters;
+    private int largestCluster;
+    private int spanningSites;
 
     /**
      * Create an n-by-n grid, with all sites blocked.
@@ -19,10 +37,39 @@ public class Percolation {
     public Percolation(int n) {
         if (n <= 0) throw new IllegalArgumentException();
         this.n = n;
-        open = new boolean[n][n];
+        open = new long[(n * n + 63) >>> 6];
+        openCount = 0;
+        parent = new int[n * n];
+        size = new int[n * n];
+        status = new byte[n * n];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+            size[i] = 1;
+        }
+    }
+
+    /**
+     * Block every site again, touching only the sites that were opened.
+     */
+    public void reset() {
+        // Only open sites are ever linked
+        for (int word = 0; word < open.length; word++) {
+            for (long bits = open[word]; bits != 0; bits &= bits - 1) {
+                final int site = (word << 6) + Long.numberOfTrailingZeros(bits);
+                parent[site] = site;
+                size[site] = 1;
+                status[site] = 0;
+            }
+            open[word] = 0;
+        }
         openCount = 0;
-        // Last two sites represent virtual source and sink, respectively.
-        uf = new WeightedQuickUnionUF(n * n + 2);
+        percolates = false;
+
+        // No cluster is larger than the largest one seen
+        if (clusterSizes != null) Arrays.fill(clusterSizes, 0, largestCluster + 1, 0);
+        clusters = 0;
+        largestCluster = 0;
+        spanningSites = 0;
     }
 
     /**
@@ -30,53 +77,144 @@ public class Percolation {
      */
     public void open(int row, int col) {
         validate(row, col);
-        
-        if (!isOpen(row, col)) {
-            // Open it
-            open[row - 1][col - 1] = true;
-            openCount++;
-
-            // Connect it to top neighbor or Source
-            if (row == 1) {
-                uf.union(to1D(row, col), getSource());
-            } else if (isOpen(row - 1, col)) {
-                uf.union(to1D(row, col), to1D(row - 1, col));
-            }
+        openSite(to1D(row, col));
+    }
 
-            // Connect it to bottom neighbor or Sink
-            if (row == n) {
-                uf.union(to1D(row, col), getSink());
-            } else if (isOpen(row + 1, col)) {
-                uf.union(to1D(row, col), to1D(row + 1, col));
-            }
+    /**
+     * @return {@code true} if the site is open.
+     */
+    public boolean isOpen(int row, int col) {
+        validate(row, col);
+        return isOpenSite(to1D(row, col));
+    }
+
+    /**
+     * Open 0-indexed site if it is not open already, without validation.
+     */
+    void openSite(int site) {
+        if (isOpenSite(site)) return;
 
-            // Connect it to left neighbor
-            if (col != 1 && isOpen(row, col - 1)) {
-                uf.union(to1D(row, col), to1D(row, col - 1));
+        // Open it
+        open[site >>> 6] |= 1L << site;
+        openCount++;
+        addCluster(site);
+
+        final int row = site / n;
+        final int col = site - row * n;
+
+        // Connect it to top neighbor
+        if (row != 0 && isOpenSite(site - n)) {
+            union(site, site - n);
+        }
+
+        // Connect it to bottom neighbor
+        if (row != n - 1 && isOpenSite(site + n)) {
+            union(site, site + n);
+        }
+
+        // Connect it to left neighbor
+        if (col != 0 && isOpenSite(site - 1)) {
+            union(site, site - 1);
+        }
+
+        // Connect it to right neighbor
+        if (col != n - 1 && isOpenSite(site + 1)) {
+            union(site, site + 1);
+        }
+    }
+
+    /**
+     * Open every site set in {@code mask}, a bitmap of the sites in row-major
+     * 0-indexed order packed 64 to a long, as {@link SiteMask} holds it.
+     * <p>
+     * Unlike opening the sites one by one, this is a single pass over the new sites
+     * that links each to the open sites above and to its left, and to the already
+     * open sites below and to its right, so every adjacent pair is linked once.
+     *
+     * @throws IllegalArgumentException if the mask is not {@code ceil(n * n / 64)} longs
+     *         or has bits set past the last site
+     */
+    public void openAll(long[] mask) {
+        if (mask == null || mask.length != open.length) throw new IllegalArgumentException();
+        if ((n * n & 63) != 0 && mask[mask.length - 1] >>> (n * n & 63) != 0) throw new IllegalArgumentException();
+
+        // Mark all new sites first, keeping them in added to tell them from old ones
+        final long[] added = new long[open.length];
+        for (int word = 0; word < open.length; word++) {
+            added[word] = mask[word] & ~open[word];
+            open[word] |= added[word];
+            openCount += Long.bitCount(added[word]);
+        }
+
+        for (int word = 0; word < added.length; word++) {
+            for (long bits = added[word]; bits != 0; bits &= bits - 1) {
+                final int site = (word << 6) + Long.numberOfTrailingZeros(bits);
+                final int row = site / n;
+                final int col = site - row * n;
+                addCluster(site);
+
+                if (row != 0 && isOpenSite(site - n)) union(site, site - n);
+                if (col != 0 && isOpenSite(site - 1)) union(site, site - 1);
+                if (row != n - 1 && isOpenSite(site + n) && !isSet(added, site + n)) union(site, site + n);
+                if (col != n - 1 && isOpenSite(site + 1) && !isSet(added, site + 1)) union(site, site + 1);
             }
+        }
+    }
 
-            // Connect it to right neighbor
-            if (col != n && isOpen(row, col + 1)) {
-                uf.union(to1D(row, col), to1D(row, col + 1));
+    /**
+     * Open every site where {@code sites[row - 1][col - 1]} is {@code true}.
+     *
+     * @throws IllegalArgumentException if {@code sites} is not n-by-n
+     */
+    public void openAll(boolean[][] sites) {
+        if (sites == null || sites.length != n) throw new IllegalArgumentException();
+        final long[] mask = new long[open.length];
+        for (int row = 0; row < n; row++) {
+            if (sites[row] == null || sites[row].length != n) throw new IllegalArgumentException();
+            for (int col = 0; col < n; col++) {
+                final int site = row * n + col;
+                if (sites[row][col]) mask[site >>> 6] |= 1L << site;
             }
         }
-        
+        openAll(mask);
+    }
+
+    private static boolean isSet(long[] bits, int site) {
+        return (bits[site >>> 6] & (1L << site)) != 0;
+    }
+
+    /**
+     * Start a cluster of one for a newly opened site.
+     */
+    private void addCluster(int site) {
+        if (clusterSizes != null) clusterSizes[1]++;
+        clusters++;
+        if (largestCluster == 0) largestCluster = 1;
+
+        // Note whether it touches the top or bottom row
+        final int row = site / n;
+        if (row == 0) status[site] |= TOP;
+        if (row == n - 1) status[site] |= BOTTOM;
+        if (status[site] == (TOP | BOTTOM)) {
+            percolates = true;
+            spanningSites++;
+        }
     }
 
     /**
-     * @return {@code true} if the site is open.
+     * @return {@code true} if the 0-indexed site is open, without validation.
      */
-    public boolean isOpen(int row, int col) {
-        validate(row, col);
-        return open[row - 1][col - 1];
+    boolean isOpenSite(int site) {
+        return (open[site >>> 6] & (1L << site)) != 0;
     }
 
     /**
-     * @return {@code true} if the site is connected to the source.
+     * @return {@code true} if the site is connected to the top row.
      */
     public boolean isFull(int row, int col) {
         validate(row, col);
-        return uf.connected(to1D(row, col), getSource());
+        final int site = to1D(row, col);
+        return isOpenSite(site) && (status[find(site)] & TOP) != 0;
     }
 
     /**
@@ -90,7 +228,92 @@ public class Percolation {
      * Does the system percolate?
      */
     public boolean percolates() {
-        return uf.connected(getSource(), getSink());
+        return percolates;
+    }
+
+    /**
+     * @return number of clusters of open sites.
+     */
+    public int numberOfClusters() {
+        return clusters;
+    }
+
+    /**
+     * @return number of clusters of exactly {@code size} open sites.
+     */
+    public int numberOfClusters(int size) {
+        if (size < 1 || size > n * n) throw new IllegalArgumentException();
+
+        // Count the open roots once, then keep the histogram up to date
+        if (clusterSizes == null) {
+            clusterSizes = new int[n * n + 1];
+            for (int word = 0; word < open.length; word++) {
+                for (long bits = open[word]; bits != 0; bits &= bits - 1) {
+                    final int site = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    if (parent[site] == site) clusterSizes[this.size[site]]++;
+                }
+            }
+        }
+        return clusterSizes[size];
+    }
+
+    /**
+     * @return number of sites in the largest cluster.
+     */
+    public int largestClusterSize() {
+        return largestCluster;
+    }
+
+    /**
+     * @return number of sites in clusters that connect the top row to the bottom row.
+     */
+    public int spanningClusterSize() {
+        return spanningSites;
+    }
+
+    private int find(int p) {
+        int q = p;
+        while (q != parent[q]) {
+            parent[q] = parent[parent[q]];    // path compression by halving
+            q = parent[q];
+        }
+        return q;
+    }
+
+    private void union(int p, int q) {
+        final int rootP = find(p);
+        final int rootQ = find(q);
+        if (rootP == rootQ) return;
+
+        // The two clusters are replaced by their union
+        if (clusterSizes != null) {
+            clusterSizes[size[rootP]]--;
+            clusterSizes[size[rootQ]]--;
+        }
+        clusters--;
+        if (status[rootP] == (TOP | BOTTOM)) spanningSites -= size[rootP];
+        if (status[rootQ] == (TOP | BOTTOM)) spanningSites -= size[rootQ];
+
+        // Make smaller root point to larger one
+        final int root;
+        if (size[rootP] < size[rootQ]) {
+            root = rootQ;
+            parent[rootP] = rootQ;
+            size[rootQ] += size[rootP];
+        } else {
+            root = rootP;
+            parent[rootQ] = rootP;
+            size[rootP] += size[rootQ];
+        }
+
+        status[root] = (byte) (status[rootP] | status[rootQ]);
+        if (status[root] == (TOP | BOTTOM)) {
+            percolates = true;
+            spanningSites += size[root];
+        }
+
+        if (clusterSizes != null) clusterSizes[size[root]]++;
+        if (size[root] > largestCluster) largestCluster = size[root];
     }
 
     /**
@@ -108,13 +331,5 @@ public class Percolation {
     private int to1D(int row, int col) {
         return (row - 1) * n + (col - 1);
     }
-
-    private int getSource() {
-        return n * n;
-    }
-
-    private int getSink() {
-        return n * n + 1;
-    }
  
  }
@@ -0,0 +1,101 @@
+import java.util.SplittableRandom;
+
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * Estimates the whole curve R(p), the probability that an n-by-n grid with each site
+ * open with probability p percolates, from a single sweep per trial.
+ * <p>
+ * Each trial records the exact number of open sites at which it first percolates.
+ * The fraction of trials percolated by k open sites is then convolved with the
+ * binomial distribution of k (Newman–Ziff), giving R(p) for any p without rerunning.
+ */
+public class PercolationCurve {
+
+    // Binomial weights below this fraction of the peak are too small to matter
+    private static final double EPSILON = 1e-17;
+
+    private final int numberOfSites;
+    private final int trials;
+    private final long[] percolatedBy;
+
+    /**
+     * Perform trials independent sweeps on an n-by-n grid, using the same trial
+     * streams as {@link PercolationStats} with the same seed.
+     */
+    public PercolationCurve(int n, int trials, long seed) {
+        if (n < 1 || trials < 1) throw new IllegalArgumentException();
+        this.trials = trials;
+
+        PercolationSweep sweep = new PercolationSweep(n);
+        numberOfSites = sweep.numberOfSites();
+
+        // Histogram of the open count at which each trial first percolates
+        long[] histogram = new long[numberOfSites + 1];
+        for (SplittableRandom stream : PercolationStats.streams(seed, trials)) {
+            histogram[sweep.run(stream)]++;
+        }
+
+        // Turn it into the number of trials percolated by k open sites
+        percolatedBy = histogram;
+        for (int k = 1; k <= numberOfSites; k++) {
+            percolatedBy[k] += percolatedBy[k - 1];
+        }
+    }
+
+    /**
+     * Fraction of trials that percolate once exactly k sites are open.
+     */
+    public double percolatedBy(int k) {
+        if (k < 0 || k > numberOfSites) throw new IllegalArgumentException();
+        return percolatedBy[k] / (double) trials;
+    }
+
+    /**
+     * Probability that the grid percolates when each site is open with probability p.
+     */
+    public double probability(double p) {
+        if (!(p >= 0 && p <= 1)) throw new IllegalArgumentException();
+        if (p == 0) return percolatedBy(0);
+        if (p == 1) return percolatedBy(numberOfSites);
+
+        // Walk outwards from the mode with the ratio B(k + 1) / B(k) = (N - k) p / ((k + 1) q)
+        double odds = p / (1 - p);
+        int mode = (int) Math.min(numberOfSites, Math.floor((numberOfSites + 1) * p));
+
+        double weight = 1;
+        double total = 1;
+        double sum = percolatedBy[mode];
+        for (int k = mode; k < numberOfSites && weight > EPSILON; k++) {
+            weight *= (numberOfSites - k) / (k + 1.0) * odds;
+            total += weight;
+            sum += weight * percolatedBy[k + 1];
+        }
+
+        weight = 1;
+        for (int k = mode; k > 0 && weight > EPSILON; k--) {
+            weight *= k / ((numberOfSites - k + 1.0) * odds);
+            total += weight;
+            sum += weight * percolatedBy[k - 1];
+        }
+
+        return sum / total / trials;
+    }
+
+    /**
+     * Usage: {@code PercolationCurve n trials seed points}
+     */
+    public static void main(String[] args) {
+        int n = Integer.parseInt(args[0]);
+        int trials = Integer.parseInt(args[1]);
+        long seed = Long.parseLong(args[2]);
+        int points = Integer.parseInt(args[3]);
+
+        PercolationCurve curve = new PercolationCurve(n, trials, seed);
+        for (int i = 0; i <= points; i++) {
+            double p = i / (double) points;
+            StdOut.printf("%.4f %.6f%n", p, curve.probability(p));
+        }
+    }
+
+}
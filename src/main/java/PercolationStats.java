@@ -1,74 +1,323 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.StdRandom;
-import edu.princeton.cs.algs4.StdStats;
 
 public class PercolationStats {
 
     private static final double CONFIDENCE_95 = 1.96d;
 
+    // Fewest trials before an adaptive run trusts its own confidence interval
+    private static final int MIN_TRIALS = 30;
+
+    // Checkpoint file: magic, number of sites, seed, then one int per completed trial
+    private static final int CHECKPOINT_MAGIC = 0x50435354;
+    private static final int CHECKPOINT_HEADER = Integer.BYTES + 2 * Long.BYTES;
+    private static final int CHECKPOINT_BATCH = 64;
+
+    // Running statistics (Welford), so no trial results are kept
     private int trialsPerformed;
-    private final double[] thresholds;
+    private double mean;
+    private double squaredDeviations;
 
     /**
      * Perform trials independent experiments on an n-by-n grid.
      */
     public PercolationStats(int n, int trials) {
+        this(n, trials, StdRandom.uniform(Long.MAX_VALUE));
+    }
+
+    /**
+     * Perform trials independent experiments on an n-by-n grid, each drawing from its own
+     * random stream split off a master generator seeded with {@code seed}.
+     */
+    public PercolationStats(int n, int trials, long seed) {
+        this(n, trials, seed, null);
+    }
+
+    /**
+     * Perform trials independent experiments on an n-by-n grid, spread over {@code pool}.
+     * Every trial owns the same random stream it would get sequentially, so the results
+     * depend only on {@code seed} and never on the number of threads.
+     *
+     * @param  pool the pool to run trials on, or {@code null} to run them on this thread
+     */
+    public PercolationStats(int n, int trials, long seed, ForkJoinPool pool) {
         if (n < 1 || trials < 1) throw new IllegalArgumentException();
-        thresholds = new double[trials];
+        run(trials, seed, pool, (double) n * n, () -> new PercolationSweep(n)::run);
+    }
+
+    /**
+     * Perform trials independent experiments on an n-by-n grid, spread over {@code pool},
+     * appending every completed trial to {@code checkpoint}. If the file already holds
+     * trials of a run with the same n and seed, they are reused and only the rest are
+     * performed, giving exactly the results of an uninterrupted run. A file holding more
+     * trials than asked for is left as it is, and only the first trials are used.
+     * <p>
+     * Trial i always uses the i-th stream split off the seed, so the seed and the number
+     * of completed trials are all the random state there is to save.
+     *
+     * @param  pool the pool to run trials on, or {@code null} to run them on this thread
+     * @throws IOException if the checkpoint cannot be read or written, or belongs to
+     *         another run
+     */
+    public PercolationStats(int n, int trials, long seed, ForkJoinPool pool, Path checkpoint) throws IOException {
+        if (n < 1 || trials < 1 || checkpoint == null) throw new IllegalArgumentException();
+        long sites = (long) n * n;
+        SplittableRandom[] streams = streams(seed, trials);
+        Supplier<ToIntFunction<SplittableRandom>> engines = () -> new PercolationSweep(n)::run;
+        Queue<ToIntFunction<SplittableRandom>> idle = new ConcurrentLinkedQueue<>();
+
+        try (FileChannel channel = FileChannel.open(checkpoint,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int done = resume(channel, sites, seed, trials);
+
+            ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_BATCH * Integer.BYTES);
+            for (int from = done; from < trials; from += CHECKPOINT_BATCH) {
+                int[] opened = run(streams, from, Math.min(trials, from + CHECKPOINT_BATCH), pool, engines, idle);
+
+                // Append only, so a crash can at worst leave a partial last record
+                buffer.clear();
+                for (int count : opened) {
+                    buffer.putInt(count);
+                    accept(count / (double) sites);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+        }
+    }
+
+    /**
+     * Read the completed trials from a checkpoint, or write the header of a new one,
+     * leaving the channel positioned for the next record.
+     *
+     * @return number of trials already completed
+     */
+    private int resume(FileChannel channel, long sites, long seed, int trials) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(CHECKPOINT_HEADER);
+        if (channel.size() < CHECKPOINT_HEADER) {
+            header.putInt(CHECKPOINT_MAGIC).putLong(sites).putLong(seed).flip();
+            channel.truncate(0);
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.position(CHECKPOINT_HEADER);
+            return 0;
+        }
+
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != CHECKPOINT_MAGIC || header.getLong() != sites || header.getLong() != seed) {
+            throw new IOException("checkpoint belongs to another run");
+        }
+
+        // Drop only a record cut short by a crash, keeping any trials of a longer run
+        long complete = (channel.size() - CHECKPOINT_HEADER) / Integer.BYTES;
+        long end = CHECKPOINT_HEADER + complete * Integer.BYTES;
+        channel.truncate(end);
+
+        // Fold in the first trials records, and append any still missing after the last one
+        int done = (int) Math.min(trials, complete);
+        ByteBuffer records = ByteBuffer.allocate(done * Integer.BYTES);
+        readFully(channel, records, CHECKPOINT_HEADER);
+        records.flip();
+        for (int i = 0; i < done; i++) {
+            accept(records.getInt() / (double) sites);
+        }
+
+        channel.position(end);
+        return done;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("truncated checkpoint");
+        }
+    }
 
-        int numberOfSites = n * n;
-        while (trialsPerformed < trials) {
-            // StdOut.printf("Performing trial %d of %d%n", trialsPerformed + 1, trials);
-            Percolation percolation = new Percolation(n);
+    /**
+     * Perform trials independent experiments on {@code lattice}, spread over {@code pool}.
+     * The threshold is the fraction of sites, or of bonds for bond percolation, open
+     * when the system first percolates.
+     *
+     * @param  pool the pool to run trials on, or {@code null} to run them on this thread
+     */
+    public PercolationStats(Lattice lattice, int trials, long seed, ForkJoinPool pool) {
+        if (lattice == null || trials < 1) throw new IllegalArgumentException();
+        run(trials, seed, pool, lattice.elements(), () -> new LatticePercolation(lattice)::sweep);
+    }
 
-            while (!percolation.percolates()) {
-                int row = StdRandom.uniform(1, n + 1);
-                int col = StdRandom.uniform(1, n + 1);
+    /**
+     * Run the trials on engines from {@code engines}, each returning the number of
+     * elements open when the system first percolates.
+     */
+    private void run(int trials, long seed, ForkJoinPool pool, double elements,
+            Supplier<ToIntFunction<SplittableRandom>> engines) {
+        int[] opened = run(streams(seed, trials), 0, trials, pool, engines, new ConcurrentLinkedQueue<>());
 
-                // StdOut.printf("Opening (%d, %d) site %d of %d%n", row, col, (row - 1) * n + (col - 1), numberOfSites);
-                percolation.open(row, col);
+        // Fold in trial order so the statistics match the sequential path exactly
+        for (int count : opened) {
+            accept(count / elements);
+        }
+    }
+
+    /**
+     * Run trials {@code from} until {@code to}, each borrowing an engine from {@code idle},
+     * or a new one if none is free, and returning it when done. So there are never more
+     * engines than trials running at once, and they are garbage once the caller drops
+     * {@code idle} rather than held by the pool's threads.
+     *
+     * @return number of elements open when each trial first percolated
+     */
+    private static int[] run(SplittableRandom[] streams, int from, int to, ForkJoinPool pool,
+            Supplier<ToIntFunction<SplittableRandom>> engines, Queue<ToIntFunction<SplittableRandom>> idle) {
+        int[] opened = new int[to - from];
+        if (pool == null) {
+            ToIntFunction<SplittableRandom> engine = borrow(engines, idle);
+            for (int i = from; i < to; i++) {
+                opened[i - from] = engine.applyAsInt(streams[i]);
             }
+            idle.add(engine);
+        } else {
+            pool.submit(() -> IntStream.range(from, to).parallel().forEach(i -> {
+                ToIntFunction<SplittableRandom> engine = borrow(engines, idle);
+                opened[i - from] = engine.applyAsInt(streams[i]);
+                idle.add(engine);
+            })).join();
+        }
+        return opened;
+    }
+
+    private static ToIntFunction<SplittableRandom> borrow(Supplier<ToIntFunction<SplittableRandom>> engines,
+            Queue<ToIntFunction<SplittableRandom>> idle) {
+        ToIntFunction<SplittableRandom> engine = idle.poll();
+        return engine != null ? engine : engines.get();
+    }
+
+    private PercolationStats() {
+    }
+
+    /**
+     * Perform experiments on an n-by-n grid until the 95% confidence interval is within
+     * {@code halfWidth} of the mean, or until {@code budgetMillis} runs out.
+     * Trial i uses the same stream as in the fixed-count constructors with this seed.
+     */
+    public static PercolationStats untilConfident(int n, double halfWidth, long budgetMillis, long seed) {
+        if (n < 1 || !(halfWidth > 0) || budgetMillis < 0) throw new IllegalArgumentException();
+        long start = System.nanoTime();
+        // Saturates, so Long.MAX_VALUE means no time limit
+        long budget = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+
+        PercolationStats stats = new PercolationStats();
+        SplittableRandom master = new SplittableRandom(seed);
+        PercolationSweep sweep = new PercolationSweep(n);
+        double numberOfSites = (double) n * n;
+
+        // Always take two trials so the interval is defined, even on an exhausted budget
+        while (stats.trialsPerformed < 2
+                || (stats.trialsPerformed < MIN_TRIALS || stats.halfWidth() > halfWidth)
+                    && System.nanoTime() - start < budget) {
+            stats.accept(sweep.run(master.split()) / numberOfSites);
+        }
+        return stats;
+    }
+
+    private void accept(double threshold) {
+        trialsPerformed++;
+        double delta = threshold - mean;
+        mean += delta / trialsPerformed;
+        squaredDeviations += delta * (threshold - mean);
+    }
+
+    private double halfWidth() {
+        return CONFIDENCE_95 * stddev() / Math.sqrt(trialsPerformed);
+    }
 
-            thresholds[trialsPerformed++] = percolation.numberOfOpenSites() / (double) numberOfSites;
-            // StdOut.printf("Trial %d threshold at %f%n", trialsPerformed, thresholds[trialsPerformed - 1]);
+    /**
+     * Derive every trial stream up front so trial i sees the same numbers on any thread.
+     */
+    static SplittableRandom[] streams(long seed, int trials) {
+        SplittableRandom master = new SplittableRandom(seed);
+        SplittableRandom[] streams = new SplittableRandom[trials];
+        for (int i = 0; i < trials; i++) {
+            streams[i] = master.split();
         }
+        return streams;
     }
 
     /**
      * Sample mean of percolation threshold.
      */
     public double mean() {
-        return StdStats.mean(thresholds);
+        return mean;
     }
 
     /**
      * Sample standard deviation of percolation threshold.
      */
     public double stddev() {
-        return trialsPerformed > 1 ? StdStats.stddev(thresholds) : Double.NaN;
+        return trialsPerformed > 1 ? Math.sqrt(squaredDeviations / (trialsPerformed - 1)) : Double.NaN;
     }
 
     /**
      * low  endpoint of 95% confidence interval
      */
     public double confidenceLo() {
-        double numerator = CONFIDENCE_95 * (trialsPerformed > 1 ? StdStats.stddev(thresholds) : Double.NaN);
-        return StdStats.mean(thresholds) - numerator / Math.sqrt(trialsPerformed);
+        return mean - halfWidth();
     }
 
     /**
      * High endpoint of 95% confidence interval.
      */
     public double confidenceHi() {
-        double numerator = CONFIDENCE_95 * (trialsPerformed > 1 ? StdStats.stddev(thresholds) : Double.NaN);
-        return StdStats.mean(thresholds) + numerator / Math.sqrt(trialsPerformed);
+        return mean + halfWidth();
     }
 
-    public static void main(String[] args) {
+    /**
+     * Number of trials performed.
+     */
+    public int trials() {
+        return trialsPerformed;
+    }
+
+    /**
+     * Usage: {@code PercolationStats n trials [seed [threads [checkpoint]]]}
+     */
+    public static void main(String[] args) throws IOException {
         int n = Integer.parseInt(args[0]);
         int trials = Integer.parseInt(args[1]);
 
-        PercolationStats stats = new PercolationStats(n, trials);
+        PercolationStats stats;
+        if (args.length > 4) {
+            ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(args[3]));
+            stats = new PercolationStats(n, trials, Long.parseLong(args[2]), pool, Paths.get(args[4]));
+            pool.shutdown();
+        } else if (args.length > 3) {
+            ForkJoinPool pool = new ForkJoinPool(Integer.parseInt(args[3]));
+            stats = new PercolationStats(n, trials, Long.parseLong(args[2]), pool);
+            pool.shutdown();
+        } else if (args.length > 2) {
+            stats = new PercolationStats(n, trials, Long.parseLong(args[2]));
+        } else {
+            stats = new PercolationStats(n, trials);
+        }
 
         StdOut.printf("%-24s= %.17f%n", "mean", stats.mean());
         StdOut.printf("%-24s= %.17f%n", "stddev", stats.stddev());
@@ -0,0 +1,60 @@
+import java.util.SplittableRandom;
+
+/**
+ * Runs percolation trials on an n-by-n grid by opening sites in a shuffled order
+ * (Newman–Ziff), so every draw opens a site that is still blocked and none are wasted.
+ * <p>
+ * A sweep reuses its grid and shuffle buffer between trials, so a run allocates
+ * nothing. It is not thread safe; use one per thread.
+ */
+public class PercolationSweep {
+
+    private final Percolation percolation;
+    private final int[] order;
+
+    /**
+     * Create a sweep over an n-by-n grid.
+     *
+     * @param  n the number of sites in a row and column
+     * @throws IllegalArgumentException if {@code n <= 0}
+     */
+    public PercolationSweep(int n) {
+        if (n <= 0) throw new IllegalArgumentException();
+        percolation = new Percolation(n);
+        order = new int[n * n];
+    }
+
+    /**
+     * Block every site, then open sites in random order until the grid percolates.
+     *
+     * @return number of open sites when the system first percolates
+     */
+    public int run(SplittableRandom random) {
+        percolation.reset();
+
+        // Start from the identity so a trial depends only on its own random stream
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+
+        int opened = 0;
+        while (!percolation.percolates()) {
+            // Incremental Fisher–Yates, order[opened..] holds the sites still blocked
+            int pick = random.nextInt(opened, order.length);
+            int site = order[pick];
+            order[pick] = order[opened];
+            order[opened++] = site;
+
+            percolation.openSite(site);
+        }
+        return opened;
+    }
+
+    /**
+     * @return number of sites in the grid.
+     */
+    public int numberOfSites() {
+        return order.length;
+    }
+
+}
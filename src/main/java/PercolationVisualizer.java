@@ -1,6 +1,6 @@
 /******************************************************************************
  *  Compilation:  javac PercolationVisualizer.java
- *  Execution:    java PercolationVisualizer input.txt
+ *  Execution:    java PercolationVisualizer input.txt [batch]
  *  Dependencies: Percolation.java
  *
  *  This program takes the name of a file as a command-line argument.
@@ -14,8 +14,12 @@
  *  open sites (that aren't full) in white, and blocked sites in black,
  *  with with site (1, 1) in the upper left-hand corner.
  *
+ *  Only the sites that changed are repainted after each open, and the frame is
+ *  shown once every batch opens (default 1), so large inputs animate quickly.
+ *
  ******************************************************************************/
 
+import java.awt.Color;
 import java.awt.Font;
 
 import edu.princeton.cs.algs4.In;
@@ -35,23 +39,24 @@ public class PercolationVisualizer {
         StdDraw.setPenColor(StdDraw.BLACK);
         StdDraw.setXscale(-0.05*n, 1.05*n);
         StdDraw.setYscale(-0.05*n, 1.05*n);   // leave a border to write text
-        StdDraw.filledSquare(n/2.0, n/2.0, n/2.0);
+        // extend the background past the sites, so repainting a site on the edge
+        // never touches the antialiased border of the background
+        StdDraw.filledSquare(n/2.0, n/2.0, 0.505*n);
 
         // draw n-by-n grid
         @Var int opened = 0;
         for (int row = 1; row <= n; row++) {
             for (int col = 1; col <= n; col++) {
                 if (perc.isFull(row, col)) {
-                    StdDraw.setPenColor(StdDraw.BOOK_LIGHT_BLUE);
+                    drawSite(n, row, col, StdDraw.BOOK_LIGHT_BLUE);
                     opened++;
                 }
                 else if (perc.isOpen(row, col)) {
-                    StdDraw.setPenColor(StdDraw.WHITE);
+                    drawSite(n, row, col, StdDraw.WHITE);
                     opened++;
                 }
                 else
-                    StdDraw.setPenColor(StdDraw.BLACK);
-                StdDraw.filledSquare(col - 0.5, n - row + 0.5, 0.45);
+                    drawSite(n, row, col, StdDraw.BLACK);
             }
         }
 
@@ -64,25 +69,87 @@ public class PercolationVisualizer {
 
     }
 
+    // paint one site over a black cell, so its antialiased edges blend with black
+    // whatever was painted there before, and repainting a site matches draw()
+    private static void drawSite(int n, int row, int col, Color color) {
+        StdDraw.setPenColor(StdDraw.BLACK);
+        StdDraw.filledSquare(col - 0.5, n - row + 0.5, 0.5);
+        StdDraw.setPenColor(color);
+        StdDraw.filledSquare(col - 0.5, n - row + 0.5, 0.45);
+    }
+
+    // repaint the sites changed by opening (row, col) and the status text;
+    // drawnFull remembers which sites are already painted full, so a cluster
+    // that just became full is flooded once and never revisited
+    public static void drawOpened(Percolation perc, int n, int row, int col, boolean[] drawnFull, int[] stack) {
+        if (perc.isFull(row, col)) {
+            @Var int size = 0;
+            if (!drawnFull[(row - 1) * n + (col - 1)]) {
+                drawnFull[(row - 1) * n + (col - 1)] = true;
+                stack[size++] = (row - 1) * n + (col - 1);
+            }
+            while (size > 0) {
+                int site = stack[--size];
+                int r = site / n + 1;
+                int c = site % n + 1;
+                drawSite(n, r, c, StdDraw.BOOK_LIGHT_BLUE);
+
+                if (r > 1) size = push(perc, n, r - 1, c, drawnFull, stack, size);
+                if (r < n) size = push(perc, n, r + 1, c, drawnFull, stack, size);
+                if (c > 1) size = push(perc, n, r, c - 1, drawnFull, stack, size);
+                if (c < n) size = push(perc, n, r, c + 1, drawnFull, stack, size);
+            }
+        }
+        else if (perc.isOpen(row, col)) {
+            drawSite(n, row, col, StdDraw.WHITE);
+        }
+
+        // write status text over the previous one, clearing the band below the
+        // text but stopping short of the background
+        StdDraw.setPenColor(StdDraw.WHITE);
+        StdDraw.filledRectangle(n/2.0, -0.029*n, 0.55*n, 0.021*n);
+        StdDraw.setPenColor(StdDraw.BLACK);
+        StdDraw.text(0.25*n, -0.025*n, perc.numberOfOpenSites() + " open sites");
+        if (perc.percolates()) StdDraw.text(0.75*n, -0.025*n, "percolates");
+        else                   StdDraw.text(0.75*n, -0.025*n, "does not percolate");
+    }
+
+    // push an open site that is not yet painted full
+    private static int push(Percolation perc, int n, int row, int col, boolean[] drawnFull, int[] stack, int size) {
+        int site = (row - 1) * n + (col - 1);
+        if (drawnFull[site] || !perc.isOpen(row, col)) return size;
+        drawnFull[site] = true;
+        stack[size] = site;
+        return size + 1;
+    }
+
     public static void main(String[] args) {
         In in = new In(args[0]);      // input file
         int n = in.readInt();         // n-by-n percolation system
+        int batch = args.length > 1 ? Integer.parseInt(args[1]) : 1;
 
         // turn on animation mode
         StdDraw.enableDoubleBuffering();
 
         // repeatedly read in sites to open and draw resulting system
         Percolation perc = new Percolation(n);
+        boolean[] drawnFull = new boolean[n * n];
+        int[] stack = new int[n * n];
         draw(perc, n);
         StdDraw.show();
         StdDraw.pause(DELAY);
+        @Var int pending = 0;
         while (!in.isEmpty()) {
             int i = in.readInt();
             int j = in.readInt();
             perc.open(i, j);
-            draw(perc, n);
-            StdDraw.show();
-            StdDraw.pause(DELAY);
+            drawOpened(perc, n, i, j, drawnFull, stack);
+            if (++pending == batch) {
+                StdDraw.show();
+                StdDraw.pause(DELAY);
+                pending = 0;
+            }
         }
+        StdDraw.show();
     }
 }
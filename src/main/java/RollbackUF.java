@@ -0,0 +1,191 @@
+import java.util.Arrays;
+
+/**
+ *  The {@code RollbackUF} class is a <em>union–find data type</em> whose changes
+ *  can be undone: {@link #checkpoint()} remembers the current state and
+ *  {@link #rollback()} restores the most recent remembered state.
+ *  <p>
+ *  This implementation uses weighted quick union by rank <em>without</em> path
+ *  compression, so a <em>union</em> changes exactly one parent and one root, and
+ *  <em>find</em> changes nothing. While a checkpoint is open every change is
+ *  logged, and a rollback undoes the log in reverse, taking time proportional to
+ *  the number of operations since the checkpoint. The <em>union</em>,
+ *  <em>find</em> and <em>connected</em> operations take logarithmic time.
+ *  <p>
+ *  Each component also carries a set of flag bits, set with {@link #mark} and
+ *  merged on <em>union</em>, for properties such as touching a grid boundary.
+ */
+public class RollbackUF {
+
+    private final int[] parent;  // parent[i] = parent of i
+    private final byte[] rank;   // rank[i] = rank of subtree rooted at i (never more than 31)
+    private final byte[] flags;  // flags[i] = flag bits of the component rooted at i
+    private int count;           // number of components
+
+    // Change log, kept only while a checkpoint is open: the root a union linked
+    // (or ~root for a mark), and the rank and flags the surviving root had before
+    private int[] logSite = new int[16];
+    private int[] logOld = new int[16];
+    private int logSize;
+
+    // Log sizes at each open checkpoint
+    private int[] checkpoints = new int[4];
+    private int depth;
+
+    /**
+     * Initializes an empty union–find data structure with {@code n} sites
+     * {@code 0} through {@code n-1}. Each site is initially in its own
+     * component with no flags.
+     *
+     * @param  n the number of sites
+     * @throws IllegalArgumentException if {@code n < 0}
+     */
+    public RollbackUF(int n) {
+        if (n < 0) throw new IllegalArgumentException();
+        count = n;
+        parent = new int[n];
+        rank = new byte[n];
+        flags = new byte[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+    }
+
+    /**
+     * Returns the component identifier for the component containing site {@code p}.
+     *
+     * @throws IllegalArgumentException unless {@code 0 <= p < n}
+     */
+    public int find(int p) {
+        validate(p);
+        int site = p;
+        while (site != parent[site]) {
+            site = parent[site];
+        }
+        return site;
+    }
+
+    /**
+     * Returns the number of components.
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Returns true if the the two sites are in the same component.
+     *
+     * @throws IllegalArgumentException unless
+     *         both {@code 0 <= p < n} and {@code 0 <= q < n}
+     */
+    public boolean connected(int p, int q) {
+        return find(p) == find(q);
+    }
+
+    /**
+     * Merges the component containing site {@code p} with the
+     * the component containing site {@code q}, and their flags.
+     *
+     * @throws IllegalArgumentException unless
+     *         both {@code 0 <= p < n} and {@code 0 <= q < n}
+     */
+    public void union(int p, int q) {
+        int rootP = find(p);
+        int rootQ = find(q);
+        if (rootP == rootQ) return;
+
+        // make root of smaller rank point to root of larger rank
+        if (rank[rootP] < rank[rootQ]) {
+            final int root = rootP;
+            rootP = rootQ;
+            rootQ = root;
+        }
+        log(rootQ, rootP);
+        parent[rootQ] = rootP;
+        if (rank[rootP] == rank[rootQ]) rank[rootP]++;
+        flags[rootP] |= flags[rootQ];
+        count--;
+    }
+
+    /**
+     * Returns the flag bits of the component containing site {@code p}.
+     *
+     * @throws IllegalArgumentException unless {@code 0 <= p < n}
+     */
+    public int flags(int p) {
+        return flags[find(p)];
+    }
+
+    /**
+     * Adds flag bits to the component containing site {@code p}.
+     *
+     * @param  bits the flags to add, in the low 8 bits
+     * @throws IllegalArgumentException unless {@code 0 <= p < n}
+     */
+    public void mark(int p, int bits) {
+        final int root = find(p);
+        if ((flags[root] | bits) == flags[root]) return;
+        log(~root, root);
+        flags[root] |= bits;
+    }
+
+    /**
+     * Remember the current state, to return to with {@link #rollback()}.
+     * Checkpoints nest.
+     */
+    public void checkpoint() {
+        if (depth == checkpoints.length) checkpoints = Arrays.copyOf(checkpoints, 2 * depth);
+        checkpoints[depth++] = logSize;
+    }
+
+    /**
+     * Undo every union and mark since the most recent checkpoint, and forget it.
+     *
+     * @throws IllegalStateException if there is no checkpoint
+     */
+    public void rollback() {
+        if (depth == 0) throw new IllegalStateException("no checkpoint");
+        final int mark = checkpoints[--depth];
+        while (logSize > mark) {
+            final int site = logSite[--logSize];
+            final int old = logOld[logSize];
+            final int root;
+            if (site >= 0) {
+                root = parent[site];
+                parent[site] = site;
+                count++;
+            } else {
+                root = ~site;
+            }
+            rank[root] = (byte) (old >>> 8);
+            flags[root] = (byte) old;
+        }
+    }
+
+    /**
+     * Returns the number of open checkpoints.
+     */
+    public int checkpoints() {
+        return depth;
+    }
+
+    private void log(int site, int root) {
+        if (depth == 0) return;
+        if (logSize == logSite.length) {
+            logSite = Arrays.copyOf(logSite, 2 * logSize);
+            logOld = Arrays.copyOf(logOld, 2 * logSize);
+        }
+        logSite[logSize] = site;
+        logOld[logSize] = rank[root] << 8 | flags[root] & 0xFF;
+        logSize++;
+    }
+
+    // validate that p is a valid index
+    private void validate(int p) {
+        int n = parent.length;
+        if (p < 0 || p >= n) {
+            throw new IllegalArgumentException("index " + p + " is not between 0 and " + (n-1));
+        }
+    }
+
+}
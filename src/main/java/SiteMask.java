@@ -0,0 +1,131 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+/**
+ * The set of open sites of an n-by-n grid, as a bitmap in row-major 0-indexed order
+ * packed 64 sites to a long, ready for {@link Percolation#openAll(long[])}.
+ * <p>
+ * Masks are read from the site list text files used by {@link PercolationVisualizer},
+ * or from a binary file of little-endian values: {@code n} as an int, then the
+ * {@code ceil(n * n / 64)} longs of the mask.
+ */
+public class SiteMask {
+
+    private final int n;
+    private final long[] words;
+
+    /**
+     * Create an n-by-n mask with no sites set.
+     *
+     * @throws IllegalArgumentException if {@code n <= 0}
+     */
+    public SiteMask(int n) {
+        if (n <= 0) throw new IllegalArgumentException();
+        this.n = n;
+        words = new long[(n * n + 63) >>> 6];
+    }
+
+    public int n() {
+        return n;
+    }
+
+    /**
+     * @return the bitmap, shared rather than copied.
+     */
+    public long[] words() {
+        return words;
+    }
+
+    /**
+     * Set the site at 1-indexed (row, col).
+     */
+    public void set(int row, int col) {
+        if (row < 1 || row > n || col < 1 || col > n) throw new IllegalArgumentException();
+        final int site = (row - 1) * n + (col - 1);
+        words[site >>> 6] |= 1L << site;
+    }
+
+    /**
+     * @return a grid with exactly the sites of this mask open.
+     */
+    public Percolation toPercolation() {
+        Percolation percolation = new Percolation(n);
+        percolation.openAll(words);
+        return percolation;
+    }
+
+    /**
+     * Read a binary file if the name ends with {@code .bin}, otherwise a text site list.
+     */
+    public static SiteMask read(Path path) throws IOException {
+        return path.toString().endsWith(".bin") ? readBinary(path) : readText(path);
+    }
+
+    /**
+     * Read a text file holding n followed by (row, col) pairs of sites to open.
+     */
+    public static SiteMask readText(Path path) {
+        In in = new In(path.toFile());
+        SiteMask mask = new SiteMask(in.readInt());
+        while (!in.isEmpty()) {
+            mask.set(in.readInt(), in.readInt());
+        }
+        return mask;
+    }
+
+    /**
+     * Read a binary file written by {@link #writeBinary}.
+     */
+    public static SiteMask readBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            SiteMask mask = new SiteMask(bytes.getInt());
+            LongBuffer longs = bytes.slice().order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            if (longs.remaining() != mask.words.length) throw new IOException("wrong size for n = " + mask.n);
+            longs.get(mask.words);
+            return mask;
+        }
+    }
+
+    /**
+     * Write this mask in the binary format.
+     */
+    public void writeBinary(Path path) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(Integer.BYTES + words.length * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putInt(n);
+        bytes.asLongBuffer().put(words);
+        bytes.rewind();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Usage: {@code SiteMask input.txt} to load a grid and report on it, or
+     * {@code SiteMask input.txt output.bin} to convert a text site list to binary.
+     */
+    public static void main(String[] args) throws IOException {
+        SiteMask mask = read(Paths.get(args[0]));
+        if (args.length > 1) mask.writeBinary(Paths.get(args[1]));
+
+        Percolation percolation = mask.toPercolation();
+        StdOut.printf("%-16s= %d%n", "open sites", percolation.numberOfOpenSites());
+        StdOut.printf("%-16s= %d%n", "clusters", percolation.numberOfClusters());
+        StdOut.printf("%-16s= %b%n", "percolates", percolation.percolates());
+    }
+
+}
@@ -12,10 +12,8 @@ public class Solver {
     //     return left.board.hamming() + left.moves - right.board.hamming() + right.moves;
     // };
 
-    private static final Comparator<SearchNode> MANHATTAN = (left, right) -> {
-        if (left.board.manhattan() + left.moves == right.board.manhattan() + right.moves) return 0;
-        return left.board.manhattan() + left.moves - right.board.manhattan() + right.moves;
-    };
+    private static final Comparator<SearchNode> MANHATTAN = (left, right) ->
+        Integer.compare(left.board.manhattan() + left.moves, right.board.manhattan() + right.moves);
 
     private final MinPQ<SearchNode> queue = new MinPQ<>(MANHATTAN);
     private final MinPQ<SearchNode> twinQueue = new MinPQ<>(MANHATTAN);
@@ -46,35 +44,53 @@ public class Solver {
     }
 
     public Solver(Board initial) {
+        this(initial, true);
+    }
+
+    /**
+     * With {@code closedSet}, each search keeps a {@link TranspositionTable} of the
+     * boards it has expanded and drops any board reached again in as many moves or more.
+     * Otherwise only the board just left is skipped.
+     */
+    public Solver(Board initial, boolean closedSet) {
         if (initial == null) throw new IllegalArgumentException();
 
+        final TranspositionTable closed = closedSet ? new TranspositionTable() : null;
+        final TranspositionTable twinClosed = closedSet ? new TranspositionTable() : null;
+
         queue.insert(new SearchNode(initial, 0, null));
         twinQueue.insert(new SearchNode(initial.twin(), 0, null));
 
-        while (!queue.min().board.isGoal() && !twinQueue.min().board.isGoal()) {
-            SearchNode searchNode = queue.delMin();
-            for (final Board neighbor : searchNode.board.neighbors()) {
-                // Critical optimization
-                if (searchNode.predecessor != null && neighbor.equals(searchNode.predecessor.board)) continue;
+        // With a closed set the unsolvable search may run out of boards first
+        while (!reachedGoal(queue) && !reachedGoal(twinQueue)) {
+            if (!queue.isEmpty()) expand(queue, closed);
+            if (!twinQueue.isEmpty()) expand(twinQueue, twinClosed);
+        }
+
+    }
 
-                // Enqueue neighbors
-                queue.insert(new SearchNode(neighbor, searchNode.moves + 1, searchNode));
-            }
+    private void expand(MinPQ<SearchNode> frontier, TranspositionTable closed) {
+        final SearchNode searchNode = frontier.delMin();
 
-            searchNode = twinQueue.delMin();
-            for (final Board neighbor : searchNode.board.neighbors()) {
-                // Critical optimization
-                if (searchNode.predecessor != null && neighbor.equals(searchNode.predecessor.board)) continue;
+        // Already expanded in as few moves
+        if (closed != null && !closed.add(searchNode.board, searchNode.moves)) return;
 
-                // Enqueue neighbors
-                twinQueue.insert(new SearchNode(neighbor, searchNode.moves + 1, searchNode));
-            }
+        for (final Board neighbor : searchNode.board.neighbors()) {
+            // Critical optimization
+            if (searchNode.predecessor != null && neighbor.equals(searchNode.predecessor.board)) continue;
+            if (closed != null && closed.contains(neighbor, searchNode.moves + 1)) continue;
+
+            // Enqueue neighbors
+            frontier.insert(new SearchNode(neighbor, searchNode.moves + 1, searchNode));
         }
+    }
 
+    private static boolean reachedGoal(MinPQ<SearchNode> frontier) {
+        return !frontier.isEmpty() && frontier.min().board.isGoal();
     }
 
     public boolean isSolvable() {
-        return queue.min().board.isGoal();
+        return reachedGoal(queue);
     }
 
     /**
@@ -0,0 +1,91 @@
+/**
+ * The closed set of an A* search: the boards already expanded, each with the fewest
+ * moves at which it was, in an open-addressing table of primitive keys.
+ * <p>
+ * Boards are keyed by {@link Board#key()}, which for boards up to 4-by-4 is the
+ * board itself, so nothing else is stored. Larger boards keep a reference alongside
+ * their hash so that colliding keys are told apart with {@link Board#equals}.
+ */
+final class TranspositionTable {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+    // Fewest moves plus one, so that zero marks an empty slot
+    private int[] moves = new int[INITIAL_CAPACITY];
+    private Board[] boards;
+    private int shift = Long.SIZE - Integer.numberOfTrailingZeros(INITIAL_CAPACITY);
+    private int size;
+
+    /**
+     * @return {@code true} if the board was already expanded within the given number of moves.
+     */
+    boolean contains(Board board, int moves) {
+        final int slot = slot(board, board.key());
+        return this.moves[slot] != 0 && this.moves[slot] <= moves + 1;
+    }
+
+    /**
+     * Record the board as expanded after the given number of moves.
+     *
+     * @return {@code false}, recording nothing, if it was already expanded within that many.
+     */
+    boolean add(Board board, int moves) {
+        final long key = board.key();
+        final int slot = slot(board, key);
+        if (this.moves[slot] != 0) {
+            if (this.moves[slot] <= moves + 1) return false;
+            this.moves[slot] = moves + 1;
+            return true;
+        }
+
+        keys[slot] = key;
+        this.moves[slot] = moves + 1;
+        if (!board.hasExactKey()) {
+            if (boards == null) boards = new Board[keys.length];
+            boards[slot] = board;
+        }
+        if (++size > keys.length >>> 1) grow();
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the slot holding the board, or the empty slot where it belongs.
+     */
+    private int slot(Board board, long key) {
+        final int mask = keys.length - 1;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        while (moves[slot] != 0 && (keys[slot] != key || boards != null && !board.equals(boards[slot]))) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        final long[] oldKeys = keys;
+        final int[] oldMoves = moves;
+        final Board[] oldBoards = boards;
+
+        keys = new long[oldKeys.length << 1];
+        moves = new int[oldKeys.length << 1];
+        boards = oldBoards == null ? null : new Board[oldKeys.length << 1];
+        shift--;
+
+        final int mask = keys.length - 1;
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (oldMoves[old] == 0) continue;
+            int slot = (int) ((oldKeys[old] * 0x9E3779B97F4A7C15L) >>> shift);
+            while (moves[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[old];
+            moves[slot] = oldMoves[old];
+            if (boards != null) boards[slot] = oldBoards[old];
+        }
+    }
+
+}
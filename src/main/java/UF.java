@@ -1,6 +1,7 @@
 /******************************************************************************
  *  Compilation:  javac UF.java
  *  Execution:    java UF < input.txt
+ *                java UF -bulk [input.txt | input.bin]
  *  Dependencies: StdIn.java StdOut.java
  *  Data files:   https://algs4.cs.princeton.edu/15uf/tinyUF.txt
  *                https://algs4.cs.princeton.edu/15uf/mediumUF.txt
@@ -23,9 +24,8 @@
 
 import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.io.IOException;
+import java.nio.file.Paths;
 import com.google.errorprone.annotations.Var;
 
 /**
@@ -127,6 +127,43 @@ public class UF {
         }
     }
 
+    /**
+     * Initializes the union–find data structure from component labels, where
+     * {@code labels[i]} is the component identifier of site {@code i} and every
+     * component identifier is its own label.
+     */
+    private UF(int[] labels) {
+        int n = labels.length;
+        parent = labels;
+        rank = new byte[n];
+        largest = new int[n];
+        for (int i = 0; i < n; i++) {
+            largest[i] = i;
+        }
+        for (int i = 0; i < n; i++) {
+            int root = labels[i];
+            if (root == i) count++;
+            else rank[root] = 1;
+            if (i > largest[root]) largest[root] = i;
+        }
+    }
+
+    /**
+     * Returns a union–find data structure with {@code n} sites in which every pair
+     * {@code p[i]}, {@code q[i]} is connected. The components are computed in
+     * parallel by {@link ConcurrentUF#components}, rather than one union at a time.
+     *
+     * @param  n the number of sites
+     * @param  p one site of each connection
+     * @param  q the other site of each connection
+     * @throws IllegalArgumentException if {@code p} and {@code q} differ in length
+     *         or hold a site outside {@code 0 <= site < n}
+     */
+    public static UF fromEdges(int n, int[] p, int[] q) {
+        if (n < 0) throw new IllegalArgumentException();
+        return new UF(ConcurrentUF.components(n, p, q));
+    }
+
     /**
      * Returns the component identifier for the component containing site {@code p}.
      *
@@ -143,13 +180,15 @@ public class UF {
         return p;
     }
 
-    public int findCanonical(@Var int p) {
-        validate(p);
-        while (p != parent[p]) {
-            // parent[p] = parent[parent[p]];    // path compression by halving
-            p = parent[p];
-        }
-        return largest[p];
+    /**
+     * Returns the largest site in the component containing site {@code p}.
+     *
+     * @param  p the integer representing one site
+     * @return the largest site in the component containing site {@code p}
+     * @throws IllegalArgumentException unless {@code 0 <= p < n}
+     */
+    public int findCanonical(int p) {
+        return largest[find(p)];
     }
 
     /**
@@ -189,31 +228,22 @@ public class UF {
         int rootQ = find(q);
         if (rootP == rootQ) return;
 
+        // the merged component keeps the larger of the two largest sites
+        int max = Math.max(largest[rootP], largest[rootQ]);
+
         // make root of smaller rank point to root of larger rank
         if (rank[rootP] < rank[rootQ]) {
             parent[rootP] = rootQ;
-            if (p > largest[rootQ]) {
-                largest[rootQ] = p;
-                largest[rootP] = p;
-            } else if (q > largest[rootQ]) {
-                largest[rootQ] = q;
-                largest[rootP] = q;
-            }
+            largest[rootQ] = max;
         }
         else if (rank[rootP] > rank[rootQ]) {
             parent[rootQ] = rootP;
-            if (p > largest[rootP]) {
-                largest[rootP] = p;
-                largest[rootQ] = p;
-            } else if (q > largest[rootP]) {
-                largest[rootP] = q;
-                largest[rootQ] = q;
-            }
+            largest[rootP] = max;
         }
         else {
             parent[rootQ] = rootP;
             rank[rootP]++;
-            largest[rootP] = p > q ? p : q;
+            largest[rootP] = max;
         }
         count--;
     }
@@ -232,30 +262,52 @@ private void validate(int p) {
      * in the pair represents some site;
      * if the sites are in different components, merge the two components
      * and print the pair to standard output.
+     * With {@code -bulk}, all pairs are read first and merged in parallel,
+     * and only the components are printed. A file named after {@code -bulk}
+     * is read through {@link EdgeList} instead of standard input.
      *
      * @param args the command-line arguments
+     * @throws IOException if the input file cannot be read
      */
-    public static void main(String[] args) {
-        int n = StdIn.readInt();
-        UF uf = new UF(n);
-        while (!StdIn.isEmpty()) {
-            int p = StdIn.readInt();
-            int q = StdIn.readInt();
-            if (uf.connected(p, q)) continue;
-            uf.union(p, q);
-            StdOut.println(p + " " + q);
+    public static void main(String[] args) throws IOException {
+        int n;
+        UF uf;
+        if (args.length > 1 && args[0].equals("-bulk")) {
+            EdgeList edges = EdgeList.read(Paths.get(args[1]));
+            n = edges.n();
+            uf = fromEdges(n, edges.p(), edges.q());
+        } else if (args.length > 0 && args[0].equals("-bulk")) {
+            int[] input = StdIn.readAllInts();
+            n = input[0];
+            int[] p = new int[(input.length - 1) / 2];
+            int[] q = new int[p.length];
+            for (int i = 0; i < p.length; i++) {
+                p[i] = input[2 * i + 1];
+                q[i] = input[2 * i + 2];
+            }
+            uf = fromEdges(n, p, q);
+        } else {
+            n = StdIn.readInt();
+            uf = new UF(n);
+            while (!StdIn.isEmpty()) {
+                int p = StdIn.readInt();
+                int q = StdIn.readInt();
+                if (uf.connected(p, q)) continue;
+                uf.union(p, q);
+                StdOut.println(p + " " + q);
+            }
         }
         StdOut.println(uf.count() + " components");
 
-        Map<Integer, Integer> largest = new HashMap<>();
-
+        // sizes[c] = number of sites whose largest site is c
+        int[] sizes = new int[n];
         for (int i = 0; i < n; i++) {
-            int canon = uf.findCanonical(i);
-            largest.put(canon, Optional.ofNullable(largest.get(canon)).orElse(0) + 1);
+            sizes[uf.findCanonical(i)]++;
         }
 
-        for (Map.Entry<Integer, Integer> entry : largest.entrySet()) {
-            StdOut.printf("%d is largest of %d nodes.%n", entry.getKey(), entry.getValue());
+        for (int canon = 0; canon < n; canon++) {
+            if (sizes[canon] == 0) continue;
+            StdOut.printf("%d is largest of %d nodes.%n", canon, sizes[canon]);
         }
     }
 }
@@ -0,0 +1,153 @@
+import java.util.Arrays;
+
+/**
+ * Percolation on an n-by-n grid whose opens can be undone, to answer "what if these
+ * sites were open too?" without rebuilding the grid.
+ * <p>
+ * Call {@link #checkpoint()}, open the hypothetical sites, query, then
+ * {@link #rollback()}. The union–find is a {@link RollbackUF}, so the rollback costs
+ * time proportional to the opens since the checkpoint, not to the grid size. Opens
+ * made while no checkpoint is open are not logged and cannot be undone.
+ */
+public class UndoablePercolation {
+
+    // Component flags
+    private static final int TOP = 1;
+    private static final int BOTTOM = 2;
+
+    private final int n;
+    // Open state, one bit per site in row-major 0-indexed order
+    private final long[] open;
+    private int openCount;
+    private boolean percolates;
+    private final RollbackUF uf;
+
+    // Sites opened since the oldest open checkpoint
+    private int[] opened = new int[16];
+    private int openedSize;
+
+    // State saved at each open checkpoint
+    private int[] savedOpened = new int[4];
+    private boolean[] savedPercolates = new boolean[4];
+
+    /**
+     * Create an n-by-n grid, with all sites blocked.
+     *
+     * @param  n the number of sites in a row and column
+     * @throws IllegalArgumentException if {@code n <= 0}
+     */
+    public UndoablePercolation(int n) {
+        if (n <= 0) throw new IllegalArgumentException();
+        this.n = n;
+        open = new long[(n * n + 63) >>> 6];
+        uf = new RollbackUF(n * n);
+    }
+
+    /**
+     * Open site if it is not open already.
+     */
+    public void open(int row, int col) {
+        validate(row, col);
+        final int site = to1D(row, col);
+        if (isOpenSite(site)) return;
+
+        open[site >>> 6] |= 1L << site;
+        openCount++;
+        if (uf.checkpoints() > 0) {
+            if (openedSize == opened.length) opened = Arrays.copyOf(opened, 2 * openedSize);
+            opened[openedSize++] = site;
+        }
+
+        if (row == 1) uf.mark(site, TOP);
+        if (row == n) uf.mark(site, BOTTOM);
+        if (row != 1 && isOpenSite(site - n)) uf.union(site, site - n);
+        if (row != n && isOpenSite(site + n)) uf.union(site, site + n);
+        if (col != 1 && isOpenSite(site - 1)) uf.union(site, site - 1);
+        if (col != n && isOpenSite(site + 1)) uf.union(site, site + 1);
+
+        if (uf.flags(site) == (TOP | BOTTOM)) percolates = true;
+    }
+
+    /**
+     * @return {@code true} if the site is open.
+     */
+    public boolean isOpen(int row, int col) {
+        validate(row, col);
+        return isOpenSite(to1D(row, col));
+    }
+
+    /**
+     * @return {@code true} if the site is connected to the top row.
+     */
+    public boolean isFull(int row, int col) {
+        validate(row, col);
+        final int site = to1D(row, col);
+        return isOpenSite(site) && (uf.flags(site) & TOP) != 0;
+    }
+
+    /**
+     * @return number of open sites.
+     */
+    public int numberOfOpenSites() {
+        return openCount;
+    }
+
+    /**
+     * Does the system percolate?
+     */
+    public boolean percolates() {
+        return percolates;
+    }
+
+    /**
+     * Remember the current state, to return to with {@link #rollback()}.
+     * Checkpoints nest.
+     */
+    public void checkpoint() {
+        final int depth = uf.checkpoints();
+        if (depth == savedOpened.length) {
+            savedOpened = Arrays.copyOf(savedOpened, 2 * depth);
+            savedPercolates = Arrays.copyOf(savedPercolates, 2 * depth);
+        }
+        savedOpened[depth] = openedSize;
+        savedPercolates[depth] = percolates;
+        uf.checkpoint();
+    }
+
+    /**
+     * Block again every site opened since the most recent checkpoint, and forget it.
+     *
+     * @throws IllegalStateException if there is no checkpoint
+     */
+    public void rollback() {
+        uf.rollback();
+        final int depth = uf.checkpoints();
+        while (openedSize > savedOpened[depth]) {
+            final int site = opened[--openedSize];
+            open[site >>> 6] &= ~(1L << site);
+            openCount--;
+        }
+        percolates = savedPercolates[depth];
+    }
+
+    private boolean isOpenSite(int site) {
+        return (open[site >>> 6] & (1L << site)) != 0;
+    }
+
+    /**
+     * Validate that the row and column exists.
+     */
+    private void validate(int row, int col) {
+        if (row < 1 || row > n || col < 1 || col > n) {
+            throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Converts two dimensional 1-indexed to one dimensional 0-indexed.
+     */
+    private int to1D(int row, int col) {
+        return (row - 1) * n + (col - 1);
+    }
+
+}